@@ -0,0 +1,81 @@
+package org.pawele.loadgen;
+
+/**
+ * Latencies in log-linear buckets: every power of two is split into 32 sub-buckets, so a percentile is off by at
+ * most ~3%, the power-of-two buckets of {@link org.pawele.LatencyHistogram} are too coarse for p99.9.
+ * - histogram is written by one thread, histograms of threads are merged into the report
+ */
+class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[indexOf(nanos)]++;
+        count++;
+        max = Math.max(max, nanos);
+    }
+
+    void add(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return upper bound of the bucket in nanoseconds, 0 when nothing was recorded
+     */
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * values below 32 have their own buckets, higher ones are bucketed by their 5 bits below the highest one
+     */
+    private static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        var exponent = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        var subBucket = (int) (nanos >>> exponent) - SUB_BUCKETS;
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        var exponent = index / SUB_BUCKETS - 1;
+        var subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((long) (subBucket + 1) << exponent) - 1;
+    }
+}
@@ -0,0 +1,306 @@
+package org.pawele.loadgen;
+
+import org.pawele.Process;
+import org.pawele.ProcessManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link Trace} against {@link ProcessManager} at fixed rate (open loop): every operation starts at its
+ * scheduled time no matter how long earlier operations took, and its latency is measured from that time, so a stall
+ * shows up in latencies of all operations scheduled during it (no coordinated omission).
+ * - operations are claimed in order by a pool of threads, a thread waits until the scheduled time of its operation
+ * - with BLOCK strategy adds wait at most the add timeout, so a replay without enough deletes cannot hang
+ * - delete scheduled before its add completed waits for it and is measured apart from other deletes, delete of
+ *   rejected add is not sent
+ */
+public class LoadGenerator {
+
+    // parking is not precise enough below that, threads spin for the rest of waiting
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    // threads are started before the first operation is scheduled
+    private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final ProcessManager manager;
+    private final int threads;
+    private final double speed;
+    private final Duration addTimeout;
+
+    private LoadGenerator(Builder builder) {
+        if(builder.manager == null){
+            throw new IllegalArgumentException("Manager must be not null");
+        }
+        if(builder.threads < 1){
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if(builder.speed <= 0){
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        if(builder.addTimeout == null || builder.addTimeout.isNegative()){
+            throw new IllegalArgumentException("Add timeout must be not negative");
+        }
+        this.manager = builder.manager;
+        this.threads = builder.threads;
+        this.speed = builder.speed;
+        this.addTimeout = builder.addTimeout;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Report replay(Trace trace) throws InterruptedException {
+        var operations = trace.getOperations();
+        // index among adds for every add, deletes refer to adds by it
+        var addIndexes = new int[operations.size()];
+        for (int i = 0, adds = 0; i < operations.size(); i++) {
+            if(operations.get(i).getType() == Operation.Type.ADD){
+                addIndexes[i] = adds++;
+            }
+        }
+        // empty when add was rejected, null while it did not complete
+        var added = new AtomicReferenceArray<Optional<Process>>(trace.getAdds());
+        var claimed = new AtomicInteger();
+        var evicted = manager.getMetrics().getEvicted();
+        var rejected = manager.getMetrics().getRejected();
+        var start = System.nanoTime() + START_DELAY_NANOS;
+
+        var workers = new Worker[threads];
+        var pool = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(trace, addIndexes, added, claimed, start);
+            pool[i] = new Thread(workers[i], "load-generator-" + i);
+            pool[i].start();
+        }
+        for (Thread thread : pool) {
+            thread.join();
+        }
+        var duration = System.nanoTime() - start;
+
+        var latencies = new EnumMap<Operation.Type, Histogram>(Operation.Type.class);
+        var waitingDeletes = new Histogram();
+        long missedDeletes = 0;
+        long maxStartDelay = 0;
+        for (Worker worker : workers) {
+            worker.latencies.forEach((type, histogram) ->
+                    latencies.computeIfAbsent(type, ignored -> new Histogram()).add(histogram));
+            waitingDeletes.add(worker.waitingDeletes);
+            missedDeletes += worker.missedDeletes;
+            maxStartDelay = Math.max(maxStartDelay, worker.maxStartDelay);
+        }
+        return new Report(latencies, manager.getMetrics().getEvicted() - evicted,
+                manager.getMetrics().getRejected() - rejected, waitingDeletes, missedDeletes, maxStartDelay, duration);
+    }
+
+    private static void waitUntil(long time) {
+        long remaining;
+        while ((remaining = time - System.nanoTime()) > 0) {
+            if(remaining > SPIN_NANOS){
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final Trace trace;
+        private final int[] addIndexes;
+        private final AtomicReferenceArray<Optional<Process>> added;
+        private final AtomicInteger claimed;
+        private final long start;
+        private final Map<Operation.Type, Histogram> latencies = new EnumMap<>(Operation.Type.class);
+        private final Histogram waitingDeletes = new Histogram();
+        private long missedDeletes;
+        private long maxStartDelay;
+
+        private Worker(Trace trace, int[] addIndexes, AtomicReferenceArray<Optional<Process>> added,
+                       AtomicInteger claimed, long start) {
+            this.trace = trace;
+            this.addIndexes = addIndexes;
+            this.added = added;
+            this.claimed = claimed;
+            this.start = start;
+            for (Operation.Type type : Operation.Type.values()) {
+                latencies.put(type, new Histogram());
+            }
+        }
+
+        @Override
+        public void run() {
+            var operations = trace.getOperations();
+            int i;
+            while ((i = claimed.getAndIncrement()) < operations.size()) {
+                var operation = operations.get(i);
+                var scheduled = start + (long) (operation.getOffsetNanos() / speed);
+                waitUntil(scheduled);
+                maxStartDelay = Math.max(maxStartDelay, System.nanoTime() - scheduled);
+                var latency = execute(operation, i);
+                if(latency != null){
+                    latency.record(System.nanoTime() - scheduled);
+                }
+            }
+        }
+
+        /**
+         * @return histogram the latency of the operation belongs to, null when operation was not sent
+         */
+        private Histogram execute(Operation operation, int i) {
+            switch (operation.getType()) {
+                case ADD:
+                    var priority = Process.Priority.of(operation.getArgument());
+                    Optional<Process> process = Optional.empty();
+                    try {
+                        process = manager.getOverflowStrategy() == ProcessManager.OverflowStrategy.BLOCK
+                                ? manager.addProcessAsync(priority, addTimeout).join()
+                                : manager.addProcess(priority);
+                    } finally {
+                        // delete waiting for the add must not wait forever when the add failed
+                        added.set(addIndexes[i], process);
+                    }
+                    return latencies.get(Operation.Type.ADD);
+                case DELETE:
+                    var latency = latencies.get(Operation.Type.DELETE);
+                    Optional<Process> victim;
+                    // the add was claimed earlier, so it is running on other thread and completes
+                    while ((victim = added.get(operation.getArgument())) == null) {
+                        latency = waitingDeletes;
+                        Thread.onSpinWait();
+                    }
+                    if(victim.isEmpty()){
+                        missedDeletes++;
+                        return null;
+                    }
+                    manager.delete(victim.get());
+                    return latency;
+                case DELETE_PRIORITY:
+                    manager.deleteAllProcessesWithPriority(Process.Priority.of(operation.getArgument()));
+                    return latencies.get(Operation.Type.DELETE_PRIORITY);
+                default:
+                    manager.getProcesses();
+                    return latencies.get(Operation.Type.LIST);
+            }
+        }
+    }
+
+    /**
+     * runs replay from the command line, options are passed as --name=value:
+     * - trace: file of recorded trace, synthetic trace is generated when it is missing
+     * - rate, duration (seconds), shares (adds,deletes,priority deletes), burst, list-interval (milliseconds),
+     *   levels (comma separated), seed: shape of synthetic trace, see {@link Workload}
+     * - record: file the replayed trace is written to, so it can be replayed again
+     * - capacity, strategy, storage, shards: the manager
+     * - threads, speed, add-timeout (milliseconds): the replay
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var options = new HashMap<String, String>();
+        for (String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("=")){
+                throw new IllegalArgumentException("Option must be given as --name=value: " + arg);
+            }
+            var separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        Trace trace;
+        if(options.containsKey("trace")){
+            trace = Trace.read(Path.of(options.get("trace")));
+        } else {
+            var shares = integers(options.getOrDefault("shares", "60,39,1"));
+            if(shares.length != 3){
+                throw new IllegalArgumentException("Shares must be given as adds,deletes,priorityDeletes");
+            }
+            trace = Trace.synthetic(Workload.builder()
+                    .rate(Double.parseDouble(options.getOrDefault("rate", "10000")))
+                    .duration(Duration.ofMillis((long) (Double.parseDouble(options.getOrDefault("duration", "10")) * 1000)))
+                    .shares(shares[0], shares[1], shares[2])
+                    .burst(Integer.parseInt(options.getOrDefault("burst", "1")))
+                    .listInterval(Duration.ofMillis(Long.parseLong(options.getOrDefault("list-interval", "100"))))
+                    .levels(integers(options.getOrDefault("levels", "0,128,255")))
+                    .seed(Long.parseLong(options.getOrDefault("seed", "1")))
+                    .build());
+        }
+        if(options.containsKey("record")){
+            trace.write(Path.of(options.get("record")));
+        }
+        var strategy = ProcessManager.OverflowStrategy.valueOf(options.getOrDefault("strategy", "SKIP"));
+        try (var manager = ProcessManager.builder()
+                .capacity(Integer.parseInt(options.getOrDefault("capacity", "1000")))
+                .overflowStrategy(strategy)
+                .storage(ProcessManager.Storage.valueOf(options.getOrDefault("storage", "PARTITIONED")))
+                .shards(Integer.parseInt(options.getOrDefault("shards", "1")))
+                .build()) {
+            var generator = LoadGenerator.builder()
+                    .manager(manager)
+                    .threads(Integer.parseInt(options.getOrDefault("threads", "4")))
+                    .speed(Double.parseDouble(options.getOrDefault("speed", "1")))
+                    .addTimeout(Duration.ofMillis(Long.parseLong(options.getOrDefault("add-timeout", "100"))))
+                    .build();
+            System.out.printf("replaying %d operations against capacity %d with %s%n",
+                    trace.size(), manager.getCapacity(), strategy);
+            System.out.print(generator.replay(trace));
+        }
+    }
+
+    private static int[] integers(String values) {
+        var fields = values.split(",");
+        var result = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            result[i] = Integer.parseInt(fields[i].strip());
+        }
+        return result;
+    }
+
+    public static final class Builder {
+        private ProcessManager manager;
+        private int threads = 4;
+        private double speed = 1;
+        private Duration addTimeout = Duration.ofMillis(100);
+
+        private Builder() {
+        }
+
+        public Builder manager(ProcessManager manager) {
+            this.manager = manager;
+            return this;
+        }
+
+        /**
+         * threads executing operations, 4 by default, operations wait for a free thread when all of them are busy
+         * and their waiting is counted in their latency
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * 2 replays the trace twice as fast, 1 by default
+         */
+        public Builder speed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * how long adds wait for space with BLOCK strategy, 100 ms by default
+         */
+        public Builder addTimeout(Duration addTimeout) {
+            this.addTimeout = addTimeout;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            return new LoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.pawele.loadgen;
+
+/**
+ * One operation of a {@link Trace}, scheduled at its offset from the start of the replay
+ */
+public class Operation {
+    private final long offsetNanos;
+    private final Type type;
+    private final int argument;
+
+    /**
+     * @param argument priority level for {@link Type#ADD} and {@link Type#DELETE_PRIORITY}, index of the add
+     *                 (counted among adds of the trace) for {@link Type#DELETE}, 0 for {@link Type#LIST}
+     */
+    public Operation(long offsetNanos, Type type, int argument) {
+        if(offsetNanos < 0){
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        if(type == null){
+            throw new IllegalArgumentException("Operation type must be not null");
+        }
+        if(argument < 0){
+            throw new IllegalArgumentException("Argument must not be negative");
+        }
+        this.offsetNanos = offsetNanos;
+        this.type = type;
+        this.argument = argument;
+    }
+
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getArgument() {
+        return argument;
+    }
+
+    @Override
+    public String toString() {
+        return offsetNanos / 1000 + " " + type + (type == Type.LIST ? "" : " " + argument);
+    }
+
+    public enum Type {
+        /**
+         * {@link org.pawele.ProcessManager#addProcess(org.pawele.Process.Priority)}
+         */
+        ADD,
+        /**
+         * {@link org.pawele.ProcessManager#delete(org.pawele.Process)} of process added by earlier add
+         */
+        DELETE,
+        /**
+         * {@link org.pawele.ProcessManager#deleteAllProcessesWithPriority(org.pawele.Process.Priority)}
+         */
+        DELETE_PRIORITY,
+        /**
+         * {@link org.pawele.ProcessManager#getProcesses()}
+         */
+        LIST
+    }
+}
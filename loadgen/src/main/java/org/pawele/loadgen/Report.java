@@ -0,0 +1,140 @@
+package org.pawele.loadgen;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Result of a replay: latency of every operation type measured from the time the operation was scheduled at (not
+ * from the time it started), so operations delayed by slow ones are counted with their waiting and coordinated
+ * omission does not hide stalls.
+ */
+public class Report {
+    private final Map<Operation.Type, Histogram> latencies;
+    private final long evicted;
+    private final long rejected;
+    private final Histogram waitingDeletes;
+    private final long missedDeletes;
+    private final long maxStartDelayNanos;
+    private final long durationNanos;
+
+    Report(Map<Operation.Type, Histogram> latencies, long evicted, long rejected, Histogram waitingDeletes,
+           long missedDeletes, long maxStartDelayNanos, long durationNanos) {
+        this.latencies = new EnumMap<>(latencies);
+        this.evicted = evicted;
+        this.rejected = rejected;
+        this.waitingDeletes = waitingDeletes;
+        this.missedDeletes = missedDeletes;
+        this.maxStartDelayNanos = maxStartDelayNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    public long getCount(Operation.Type type) {
+        var histogram = latencies.get(type);
+        return histogram == null ? 0 : histogram.count();
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return latency in nanoseconds, upper bound of its bucket, 0 when there was no such operation
+     */
+    public long getPercentileNanos(Operation.Type type, double percentile) {
+        checkPercentile(percentile);
+        var histogram = latencies.get(type);
+        return histogram == null ? 0 : histogram.percentile(percentile);
+    }
+
+    public long getMaxNanos(Operation.Type type) {
+        var histogram = latencies.get(type);
+        return histogram == null ? 0 : histogram.max();
+    }
+
+    /**
+     * processes evicted by the overflow strategy during the replay
+     */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    /**
+     * adds which returned empty during the replay
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * deletes scheduled before their add completed, they waited for it and their latency counts the waiting, so
+     * they are not counted among {@link Operation.Type#DELETE} operations
+     */
+    public long getWaitingDeletes() {
+        return waitingDeletes.count();
+    }
+
+    /**
+     * see {@link #getPercentileNanos(Operation.Type, double)}, of deletes which waited for their add
+     */
+    public long getWaitingDeletePercentileNanos(double percentile) {
+        checkPercentile(percentile);
+        return waitingDeletes.percentile(percentile);
+    }
+
+    public long getWaitingDeleteMaxNanos() {
+        return waitingDeletes.max();
+    }
+
+    /**
+     * deletes which were not sent, because their add was rejected
+     */
+    public long getMissedDeletes() {
+        return missedDeletes;
+    }
+
+    /**
+     * the longest time an operation waited for a free thread after its scheduled time, when it grows with the
+     * replay the generator needs more threads or the manager cannot keep up with the rate
+     */
+    public long getMaxStartDelayNanos() {
+        return maxStartDelayNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        var text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-16s %10s %12s %12s %12s %12s%n",
+                "operation", "count", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (Operation.Type type : Operation.Type.values()) {
+            if(getCount(type) == 0){
+                continue;
+            }
+            text.append(String.format(Locale.ROOT, "%-16s %10d %12.1f %12.1f %12.1f %12.1f%n",
+                    type, getCount(type), micros(getPercentileNanos(type, 50)), micros(getPercentileNanos(type, 99)),
+                    micros(getPercentileNanos(type, 99.9)), micros(getMaxNanos(type))));
+        }
+        if(getWaitingDeletes() > 0){
+            text.append(String.format(Locale.ROOT, "%-16s %10d %12.1f %12.1f %12.1f %12.1f%n",
+                    "DELETE waiting", getWaitingDeletes(), micros(getWaitingDeletePercentileNanos(50)),
+                    micros(getWaitingDeletePercentileNanos(99)), micros(getWaitingDeletePercentileNanos(99.9)),
+                    micros(getWaitingDeleteMaxNanos())));
+        }
+        text.append(String.format(Locale.ROOT, "evicted %d, rejected %d, missed deletes %d%n",
+                evicted, rejected, missedDeletes));
+        text.append(String.format(Locale.ROOT, "duration %.3f s, max start delay %.1f us%n",
+                durationNanos / 1e9, micros(maxStartDelayNanos)));
+        return text.toString();
+    }
+
+    private static void checkPercentile(double percentile) {
+        if(percentile < 0 || percentile > 100){
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
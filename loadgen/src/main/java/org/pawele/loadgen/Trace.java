@@ -0,0 +1,176 @@
+package org.pawele.loadgen;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Operations ordered by their offsets, recorded into a file or generated from a {@link Workload}. File has one
+ * operation per line: offset in microseconds, type and argument (omitted for LIST), lines starting with # are
+ * comments, e.g.
+ * <pre>
+ * 0 ADD 128
+ * 150 ADD 255
+ * 900 DELETE 0
+ * 1000 LIST
+ * 2500 DELETE_PRIORITY 255
+ * </pre>
+ */
+public class Trace {
+    private final List<Operation> operations;
+    private final int adds;
+
+    /**
+     * @param operations ordered by offset, deletes refer to earlier adds
+     */
+    public Trace(List<Operation> operations) {
+        if(operations == null){
+            throw new IllegalArgumentException("Operations must be not null");
+        }
+        int adds = 0;
+        long offset = 0;
+        for (Operation operation : operations) {
+            if(operation.getOffsetNanos() < offset){
+                throw new IllegalArgumentException("Operations must be ordered by offset");
+            }
+            offset = operation.getOffsetNanos();
+            if(operation.getType() == Operation.Type.ADD || operation.getType() == Operation.Type.DELETE_PRIORITY){
+                if(operation.getArgument() > 255){
+                    throw new IllegalArgumentException("Priority level must be between 0 and 255");
+                }
+            }
+            if(operation.getType() == Operation.Type.DELETE && operation.getArgument() >= adds){
+                throw new IllegalArgumentException("Delete must refer to earlier add");
+            }
+            if(operation.getType() == Operation.Type.ADD){
+                adds++;
+            }
+        }
+        this.operations = List.copyOf(operations);
+        this.adds = adds;
+    }
+
+    public static Trace read(Path file) throws IOException {
+        var operations = new ArrayList<Operation>();
+        int number = 0;
+        for (String line : Files.readAllLines(file)) {
+            number++;
+            line = line.strip();
+            if(line.isEmpty() || line.startsWith("#")){
+                continue;
+            }
+            var fields = line.split("\\s+");
+            try {
+                var type = Operation.Type.valueOf(fields[1]);
+                var argument = type == Operation.Type.LIST ? 0 : Integer.parseInt(fields[2]);
+                operations.add(new Operation(Long.parseLong(fields[0]) * 1000, type, argument));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid operation at line " + number + ": " + line, e);
+            }
+        }
+        return new Trace(operations);
+    }
+
+    public void write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (Operation operation : operations) {
+                writer.write(operation.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * the same workload and seed give the same trace
+     */
+    public static Trace synthetic(Workload workload) {
+        var random = new Random(workload.seed());
+        var end = workload.duration().toNanos();
+        var shares = workload.adds() + workload.deletes() + workload.priorityDeletes();
+        // adds arrive in bursts, so bursts are less frequent than adds
+        var addBursts = new Flow(workload.rate() * workload.adds() / shares / workload.burst(), random);
+        var deletes = new Flow(workload.rate() * workload.deletes() / shares, random);
+        var priorityDeletes = new Flow(workload.rate() * workload.priorityDeletes() / shares, random);
+        var listInterval = workload.listInterval().toNanos();
+        var nextList = listInterval > 0 ? listInterval : Long.MAX_VALUE;
+
+        var operations = new ArrayList<Operation>();
+        // adds of the trace which were not deleted by it, deletes pick one of them at random
+        var live = new ArrayList<Integer>();
+        int adds = 0;
+        while (true) {
+            var now = Math.min(Math.min(addBursts.next, deletes.next), Math.min(priorityDeletes.next, nextList));
+            if(now >= end){
+                break;
+            }
+            if(now == addBursts.next){
+                for (int i = 0; i < workload.burst(); i++) {
+                    operations.add(new Operation(now, Operation.Type.ADD, level(workload, random)));
+                    live.add(adds++);
+                }
+                addBursts.advance();
+            } else if(now == deletes.next){
+                if(!live.isEmpty()){
+                    var picked = random.nextInt(live.size());
+                    operations.add(new Operation(now, Operation.Type.DELETE, live.get(picked)));
+                    live.set(picked, live.get(live.size() - 1));
+                    live.remove(live.size() - 1);
+                }
+                deletes.advance();
+            } else if(now == priorityDeletes.next){
+                operations.add(new Operation(now, Operation.Type.DELETE_PRIORITY, level(workload, random)));
+                priorityDeletes.advance();
+            } else {
+                operations.add(new Operation(now, Operation.Type.LIST, 0));
+                nextList += listInterval;
+            }
+        }
+        return new Trace(operations);
+    }
+
+    private static int level(Workload workload, Random random) {
+        return workload.levels()[random.nextInt(workload.levels().length)];
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * number of adds, deletes refer to adds by index from 0 to adds - 1
+     */
+    public int getAdds() {
+        return adds;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * arrivals with exponentially distributed gaps, flow with zero rate never arrives
+     */
+    private static final class Flow {
+        private final double meanGapNanos;
+        private final Random random;
+        private long next;
+
+        private Flow(double rate, Random random) {
+            this.meanGapNanos = rate > 0 ? 1e9 / rate : Double.POSITIVE_INFINITY;
+            this.random = random;
+            advance();
+        }
+
+        private void advance() {
+            if(Double.isInfinite(meanGapNanos)){
+                next = Long.MAX_VALUE;
+                return;
+            }
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+        }
+    }
+}
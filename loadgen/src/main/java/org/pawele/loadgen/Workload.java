@@ -0,0 +1,174 @@
+package org.pawele.loadgen;
+
+import org.pawele.Process;
+
+import java.time.Duration;
+
+/**
+ * Shape of a synthetic {@link Trace}:
+ * - adds, deletes by id and deletes by priority arrive as Poisson streams, their rates are shares of the total rate
+ * - adds arrive in bursts of given size, all adds of a burst are scheduled at the same instant
+ * - processes are listed periodically, like a poller would do
+ * - deletes by id pick random process added by the trace and not deleted by it yet
+ */
+public class Workload {
+    private final double rate;
+    private final Duration duration;
+    private final int adds;
+    private final int deletes;
+    private final int priorityDeletes;
+    private final int burst;
+    private final Duration listInterval;
+    private final int[] levels;
+    private final long seed;
+
+    private Workload(Builder builder) {
+        if(builder.rate <= 0){
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        if(builder.duration == null || builder.duration.isNegative() || builder.duration.isZero()){
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        if(builder.adds < 0 || builder.deletes < 0 || builder.priorityDeletes < 0
+                || builder.adds + builder.deletes + builder.priorityDeletes == 0){
+            throw new IllegalArgumentException("Shares must not be negative and at least one must be positive");
+        }
+        if(builder.burst < 1){
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+        if(builder.listInterval == null || builder.listInterval.isNegative()){
+            throw new IllegalArgumentException("List interval must be not negative");
+        }
+        if(builder.levels == null || builder.levels.length == 0){
+            throw new IllegalArgumentException("Priority levels must be not empty");
+        }
+        for (int level : builder.levels) {
+            Process.Priority.of(level);
+        }
+        this.rate = builder.rate;
+        this.duration = builder.duration;
+        this.adds = builder.adds;
+        this.deletes = builder.deletes;
+        this.priorityDeletes = builder.priorityDeletes;
+        this.burst = builder.burst;
+        this.listInterval = builder.listInterval;
+        this.levels = builder.levels.clone();
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    double rate() {
+        return rate;
+    }
+
+    Duration duration() {
+        return duration;
+    }
+
+    int adds() {
+        return adds;
+    }
+
+    int deletes() {
+        return deletes;
+    }
+
+    int priorityDeletes() {
+        return priorityDeletes;
+    }
+
+    int burst() {
+        return burst;
+    }
+
+    Duration listInterval() {
+        return listInterval;
+    }
+
+    int[] levels() {
+        return levels;
+    }
+
+    long seed() {
+        return seed;
+    }
+
+    public static final class Builder {
+        private double rate = 10_000;
+        private Duration duration = Duration.ofSeconds(10);
+        private int adds = 60;
+        private int deletes = 39;
+        private int priorityDeletes = 1;
+        private int burst = 1;
+        private Duration listInterval = Duration.ofMillis(100);
+        private int[] levels = {
+                Process.Priority.LOW.getLevel(), Process.Priority.MEDIUM.getLevel(), Process.Priority.HIGH.getLevel()
+        };
+        private long seed = 1;
+
+        private Builder() {
+        }
+
+        /**
+         * operations per second of adds, deletes and deletes by priority together, 10 000 by default
+         */
+        public Builder rate(double rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * 10 seconds by default
+         */
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * shares of the rate, 60 : 39 : 1 by default
+         */
+        public Builder shares(int adds, int deletes, int priorityDeletes) {
+            this.adds = adds;
+            this.deletes = deletes;
+            this.priorityDeletes = priorityDeletes;
+            return this;
+        }
+
+        /**
+         * adds scheduled at once, 1 by default
+         */
+        public Builder burst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * period of listing processes, 100 ms by default, 0 disables listing
+         */
+        public Builder listInterval(Duration listInterval) {
+            this.listInterval = listInterval;
+            return this;
+        }
+
+        /**
+         * priority levels of adds and deletes by priority, picked uniformly, LOW, MEDIUM and HIGH by default
+         */
+        public Builder levels(int... levels) {
+            this.levels = levels;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Workload build() {
+            return new Workload(this);
+        }
+    }
+}
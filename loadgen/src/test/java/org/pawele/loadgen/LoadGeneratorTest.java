@@ -0,0 +1,106 @@
+package org.pawele.loadgen;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.pawele.Process;
+import org.pawele.ProcessManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class LoadGeneratorTest {
+
+    @Test
+    void everyOperationOfTraceShouldBeMeasured() throws InterruptedException {
+        //given
+        var trace = Trace.synthetic(Workload.builder()
+                .rate(5_000)
+                .duration(Duration.ofMillis(200))
+                .listInterval(Duration.ofMillis(50))
+                .build());
+        var manager = new ProcessManager(1_000);
+
+        //when
+        var report = LoadGenerator.builder().manager(manager).threads(2).build().replay(trace);
+
+        //then
+        for (Operation.Type type : Operation.Type.values()) {
+            var expected = trace.getOperations().stream().filter(operation -> operation.getType() == type).count();
+            var notCounted = type == Operation.Type.DELETE ? report.getWaitingDeletes() + report.getMissedDeletes() : 0;
+            Assertions.assertThat(report.getCount(type) + notCounted).isEqualTo(expected);
+        }
+        Assertions.assertThat(report.getPercentileNanos(Operation.Type.ADD, 50))
+                .isPositive()
+                .isLessThanOrEqualTo(report.getPercentileNanos(Operation.Type.ADD, 99.9))
+                .isLessThanOrEqualTo(report.getMaxNanos(Operation.Type.ADD));
+        Assertions.assertThat(report.getEvicted()).isZero();
+        Assertions.assertThat(report.toString()).contains("ADD", "DELETE", "LIST", "p99.9 us");
+    }
+
+    @Test
+    void evictionsOfReplayShouldBeReported() throws InterruptedException {
+        //given
+        var operations = new ArrayList<Operation>();
+        for (int i = 0; i < 10; i++) {
+            operations.add(new Operation(i * 100_000L, Operation.Type.ADD, Process.Priority.LOW.getLevel()));
+        }
+        var manager = ProcessManager.builder()
+                .capacity(4)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .build();
+        manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var report = LoadGenerator.builder().manager(manager).build().replay(new Trace(operations));
+
+        //then
+        Assertions.assertThat(report.getCount(Operation.Type.ADD)).isEqualTo(10);
+        Assertions.assertThat(report.getEvicted()).isEqualTo(7);
+        Assertions.assertThat(manager.size()).isEqualTo(4);
+    }
+
+    @Test
+    void deleteScheduledBeforeItsAddCompletedShouldWaitAndBeMeasuredApart() throws InterruptedException {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(1)
+                .overflowStrategy(ProcessManager.OverflowStrategy.BLOCK)
+                .build();
+        manager.addProcess(Process.Priority.HIGH);
+        var freed = TimeUnit.MILLISECONDS.toNanos(20);
+        var trace = new Trace(List.of(
+                new Operation(0, Operation.Type.ADD, Process.Priority.LOW.getLevel()),
+                new Operation(0, Operation.Type.DELETE, 0),
+                new Operation(freed, Operation.Type.DELETE_PRIORITY, Process.Priority.HIGH.getLevel())
+        ));
+
+        //when
+        var report = LoadGenerator.builder()
+                .manager(manager)
+                .threads(3)
+                .addTimeout(Duration.ofSeconds(10))
+                .build()
+                .replay(trace);
+
+        //then
+        Assertions.assertThat(report.getCount(Operation.Type.DELETE)).isZero();
+        Assertions.assertThat(report.getMissedDeletes()).isZero();
+        Assertions.assertThat(report.getWaitingDeletes()).isEqualTo(1);
+        Assertions.assertThat(report.getWaitingDeleteMaxNanos()).isGreaterThanOrEqualTo(freed);
+        Assertions.assertThat(report.toString()).contains("DELETE waiting");
+        Assertions.assertThat(manager.size()).isZero();
+    }
+
+    @Test
+    void generatorWithoutManagerWillThrowAnException() {
+        //given
+        var builder = LoadGenerator.builder();
+
+        //when //then
+        Assertions.assertThatThrownBy(builder::build)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Manager must be not null");
+    }
+}
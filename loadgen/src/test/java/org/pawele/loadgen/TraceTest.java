@@ -0,0 +1,94 @@
+package org.pawele.loadgen;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class TraceTest {
+
+    @Test
+    void writtenTraceShouldBeReadBack(@TempDir Path directory) throws IOException {
+        //given
+        var trace = new Trace(List.of(
+                new Operation(0, Operation.Type.ADD, 128),
+                new Operation(150_000, Operation.Type.ADD, 255),
+                new Operation(900_000, Operation.Type.DELETE, 0),
+                new Operation(1_000_000, Operation.Type.LIST, 0),
+                new Operation(2_500_000, Operation.Type.DELETE_PRIORITY, 255)));
+        var file = directory.resolve("trace");
+
+        //when
+        trace.write(file);
+        var read = Trace.read(file);
+
+        //then
+        Assertions.assertThat(read.getOperations()).extracting(Operation::toString)
+                .containsExactly("0 ADD 128", "150 ADD 255", "900 DELETE 0", "1000 LIST", "2500 DELETE_PRIORITY 255");
+        Assertions.assertThat(read.getAdds()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidLineShouldBeReportedWithItsNumber(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("trace");
+        Files.write(file, List.of("# comment", "0 ADD 0", "10 REMOVE 0"));
+
+        //when //then
+        Assertions.assertThatThrownBy(() -> Trace.read(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid operation at line 3: 10 REMOVE 0");
+    }
+
+    @Test
+    void deleteOfLaterAddWillThrowAnException() {
+        //given
+        var operations = List.of(
+                new Operation(0, Operation.Type.DELETE, 0),
+                new Operation(10, Operation.Type.ADD, 0));
+
+        //when //then
+        Assertions.assertThatThrownBy(() -> new Trace(operations))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Delete must refer to earlier add");
+    }
+
+    @Test
+    void syntheticTraceShouldFollowWorkload() {
+        //given
+        var workload = Workload.builder()
+                .rate(10_000)
+                .duration(Duration.ofSeconds(1))
+                .shares(60, 40, 0)
+                .burst(3)
+                .listInterval(Duration.ofMillis(100))
+                .levels(7, 42)
+                .seed(5)
+                .build();
+
+        //when
+        var trace = Trace.synthetic(workload);
+
+        //then
+        Assertions.assertThat(Trace.synthetic(workload).getOperations()).extracting(Operation::toString)
+                .isEqualTo(trace.getOperations().stream().map(Operation::toString).collect(Collectors.toList()));
+        var operations = trace.getOperations();
+        Assertions.assertThat(operations).filteredOn(operation -> operation.getType() == Operation.Type.ADD)
+                .hasSizeBetween(5_400, 6_600)
+                .allMatch(operation -> operation.getArgument() == 7 || operation.getArgument() == 42);
+        Assertions.assertThat(operations).filteredOn(operation -> operation.getType() == Operation.Type.DELETE)
+                .hasSizeBetween(3_600, 4_400)
+                .extracting(Operation::getArgument)
+                .doesNotHaveDuplicates();
+        Assertions.assertThat(operations).filteredOn(operation -> operation.getType() == Operation.Type.LIST)
+                .hasSize(9);
+        Assertions.assertThat(operations).noneMatch(operation -> operation.getType() == Operation.Type.DELETE_PRIORITY);
+        Assertions.assertThat(trace.getAdds() % 3).isZero();
+    }
+}
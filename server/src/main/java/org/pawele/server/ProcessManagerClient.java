@@ -0,0 +1,278 @@
+package org.pawele.server;
+
+import org.pawele.Process;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.pawele.server.Protocol.*;
+
+/**
+ * Client of {@link ProcessManagerServer}, it is thread safe and one connection should be shared by the whole JVM.
+ * - methods do not wait for responses, so requests are pipelined, futures complete on the thread reading responses
+ * - requests sent concurrently are written by one caller in one gathering write
+ * - when the connection is lost, all pending futures fail with {@link IOException}
+ */
+public class ProcessManagerClient implements AutoCloseable {
+
+    // frames written by one gathering write at most
+    private static final int WRITE_BATCH = 1024;
+
+    private final SocketChannel channel;
+    private final Thread reader;
+    private final AtomicInteger requestIds = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, Request<?>> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private ProcessManagerClient(SocketChannel channel) {
+        this.channel = channel;
+        this.reader = new Thread(this::read, "process-manager-client");
+        reader.setDaemon(true);
+    }
+
+    /**
+     * @param address address of the server, see {@link ProcessManagerServer#getAddress()}
+     */
+    public static ProcessManagerClient connect(SocketAddress address) throws IOException {
+        if(address == null){
+            throw new IllegalArgumentException("Address must be not null");
+        }
+        var client = new ProcessManagerClient(SocketChannel.open(address));
+        client.reader.start();
+        return client;
+    }
+
+    /**
+     * see {@link org.pawele.ProcessManager#addProcess(Process.Priority)}
+     */
+    public CompletableFuture<Optional<RemoteProcess>> addProcess(Process.Priority priority) {
+        return add(priority, -1);
+    }
+
+    /**
+     * see {@link org.pawele.ProcessManager#addProcessAsync(Process.Priority, Duration)}, waits with any overflow
+     * strategy of the manager
+     */
+    public CompletableFuture<Optional<RemoteProcess>> addProcess(Process.Priority priority, Duration timeout) {
+        if(timeout == null || timeout.isNegative()){
+            throw new IllegalArgumentException("Timeout must be not negative");
+        }
+        return add(priority, timeout.toMillis());
+    }
+
+    private CompletableFuture<Optional<RemoteProcess>> add(Process.Priority priority, long timeout) {
+        if(priority == null){
+            throw new IllegalArgumentException("Process priority must be not null");
+        }
+        return send(ADD, Byte.BYTES + Long.BYTES, frame -> {
+            writePriority(frame, priority);
+            frame.putLong(timeout);
+        }, (status, payload) -> status == EMPTY ? Optional.empty() : Optional.of(readProcess(payload)));
+    }
+
+    public CompletableFuture<Boolean> delete(String id) {
+        if(id == null){
+            throw new IllegalArgumentException("Process id must be not null");
+        }
+        return send(DELETE, stringSize(id), frame -> writeString(frame, id), (status, payload) -> payload.get() == 1);
+    }
+
+    public CompletableFuture<Boolean> delete(RemoteProcess process) {
+        if(process == null){
+            throw new IllegalArgumentException("Process must be not null");
+        }
+        return delete(process.getId());
+    }
+
+    public CompletableFuture<Boolean> deleteAllProcessesWithPriority(Process.Priority priority) {
+        if(priority == null){
+            throw new IllegalArgumentException("Process priority must be not null");
+        }
+        return send(DELETE_PRIORITY, Byte.BYTES, frame -> writePriority(frame, priority),
+                (status, payload) -> payload.get() == 1);
+    }
+
+    /**
+     * see {@link org.pawele.ProcessManager#getSnapshot()}, large snapshot is read in pages of one snapshot taken by the
+     * server for the first page. When other snapshot is started meanwhile, the rest is read from the newer one after
+     * the sequence of the previous page.
+     */
+    public CompletableFuture<List<RemoteProcess>> getSnapshot() {
+        var processes = new ArrayList<RemoteProcess>();
+        return snapshot(Long.MIN_VALUE, processes).thenApply(ignored -> List.copyOf(processes));
+    }
+
+    /**
+     * pages are decoded and requested by the reading thread one after another, so the list is not shared
+     */
+    private CompletableFuture<Void> snapshot(long after, List<RemoteProcess> processes) {
+        return send(SNAPSHOT, Long.BYTES, frame -> frame.putLong(after), (status, payload) -> {
+            var count = payload.getInt();
+            var more = payload.get() == 1;
+            for (int i = 0; i < count; i++) {
+                processes.add(readProcess(payload));
+            }
+            return more;
+        }).thenCompose(more -> more
+                ? snapshot(processes.get(processes.size() - 1).getSequence(), processes)
+                : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * closes the connection, pending futures fail
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> send(byte opcode, int payloadSize, Consumer<ByteBuffer> payload,
+                                          Decoder<T> decoder) {
+        var requestId = requestIds.incrementAndGet();
+        var frame = ByteBuffer.allocate(HEADER + payloadSize);
+        frame.putInt(0).putInt(requestId).put(opcode);
+        payload.accept(frame);
+        frame.putInt(0, frame.position() - Integer.BYTES);
+        var request = new Request<>(decoder);
+        pending.put(requestId, request);
+        // failing sets the flag before it fails pending requests, so either it sees this request or it is seen here
+        if(closed){
+            pending.remove(requestId);
+            request.future.completeExceptionally(new ClosedChannelException());
+            return request.future;
+        }
+        outgoing.add(frame.flip());
+        flush();
+        return request.future;
+    }
+
+    /**
+     * frames are written by the caller which gets the flag, others only enqueue them, and the writer checks the
+     * queue again after it releases the flag, so no frame is left behind
+     */
+    private void flush() {
+        while (!outgoing.isEmpty() && writing.compareAndSet(false, true)) {
+            try {
+                var batch = new ArrayList<ByteBuffer>();
+                ByteBuffer frame;
+                while (batch.size() < WRITE_BATCH && (frame = outgoing.poll()) != null) {
+                    batch.add(frame);
+                }
+                if(batch.isEmpty()){
+                    continue;
+                }
+                var buffers = batch.toArray(ByteBuffer[]::new);
+                var last = buffers[buffers.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(buffers);
+                }
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                writing.set(false);
+            }
+        }
+    }
+
+    private void read() {
+        var input = ByteBuffer.allocate(BUFFER_SIZE);
+        try {
+            while (channel.read(input) >= 0) {
+                input.flip();
+                while (input.remaining() >= Integer.BYTES) {
+                    var length = input.getInt(input.position());
+                    if(length < HEADER - Integer.BYTES || length > MAX_FRAME){
+                        throw new IOException("Invalid frame length " + length);
+                    }
+                    if(input.remaining() < Integer.BYTES + length){
+                        break;
+                    }
+                    var frame = input.slice(input.position() + Integer.BYTES, length);
+                    input.position(input.position() + Integer.BYTES + length);
+                    complete(frame);
+                }
+                input.compact();
+                if(input.position() >= Integer.BYTES && !input.hasRemaining()){
+                    // frame does not fit, its length was checked above
+                    var larger = ByteBuffer.allocate(Integer.BYTES + input.getInt(0));
+                    input.flip();
+                    input = larger.put(input);
+                }
+            }
+            fail(new ClosedChannelException());
+        } catch (IOException e) {
+            fail(e);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // connection is dropped anyway
+            }
+        }
+    }
+
+    private void complete(ByteBuffer frame) {
+        var request = pending.remove(frame.getInt());
+        if(request == null){
+            return;
+        }
+        var status = frame.get();
+        if(status == ERROR){
+            request.future.completeExceptionally(new IllegalArgumentException(readString(frame)));
+            return;
+        }
+        request.complete(status, frame);
+    }
+
+    private void fail(IOException cause) {
+        closed = true;
+        for (Integer requestId : pending.keySet()) {
+            var request = pending.remove(requestId);
+            if(request != null){
+                request.future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode(byte status, ByteBuffer payload);
+    }
+
+    private static final class Request<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Decoder<T> decoder;
+
+        private Request(Decoder<T> decoder) {
+            this.decoder = decoder;
+        }
+
+        private void complete(byte status, ByteBuffer payload) {
+            try {
+                future.complete(decoder.decode(status, payload));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
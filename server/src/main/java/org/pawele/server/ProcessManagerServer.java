@@ -0,0 +1,430 @@
+package org.pawele.server;
+
+import org.pawele.Process;
+import org.pawele.ProcessManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.pawele.server.Protocol.*;
+
+/**
+ * Serves one {@link ProcessManager} to other processes of the host over Unix-domain or loopback socket, see
+ * {@link Protocol} for frames and {@link ProcessManagerClient} for the client.
+ * - one thread with a selector serves all connections, sockets are non-blocking
+ * - all requests which arrived in one read are handled and their responses are written at once, so pipelined
+ *   requests cost one read and one write per batch
+ * - adds with timeout wait without blocking the thread, their responses are written when they complete, so they may
+ *   overtake earlier requests
+ * - connection with more than 64 KiB of unwritten responses is not read until the client catches up
+ * - failure of one connection or of accepting it closes only that connection, failure of the selector stops the
+ *   server, see {@link #onStop()}
+ * - manager must not use BLOCK strategy, its adds would stall the thread, clients wait with timeout instead
+ */
+public class ProcessManagerServer implements AutoCloseable {
+
+    private final ProcessManager manager;
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final Selector selector;
+    private final Thread thread;
+    // connections with responses of waiting adds which are not copied into their output yet
+    private final ConcurrentLinkedQueue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+    private volatile boolean running = true;
+
+    private ProcessManagerServer(ProcessManager manager, SocketAddress address) throws IOException {
+        this.manager = manager;
+        this.server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            this.address = server.getLocalAddress();
+            this.selector = Selector.open();
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "process-manager-server");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * binds the address and starts serving the manager
+     *
+     * @param address {@link UnixDomainSocketAddress} or loopback {@link InetSocketAddress}, port 0 binds any free
+     *                port, see {@link #getAddress()}. Other addresses are rejected, the protocol has no
+     *                authentication and deletes kill OS processes.
+     */
+    public static ProcessManagerServer start(ProcessManager manager, SocketAddress address) throws IOException {
+        if(manager == null){
+            throw new IllegalArgumentException("Manager must be not null");
+        }
+        if(address == null){
+            throw new IllegalArgumentException("Address must be not null");
+        }
+        if(!(address instanceof UnixDomainSocketAddress) && !isLoopback(address)){
+            throw new IllegalArgumentException("Address must be Unix-domain or loopback");
+        }
+        if(manager.getOverflowStrategy() == ProcessManager.OverflowStrategy.BLOCK){
+            throw new IllegalArgumentException("Server does not support BLOCK overflow strategy, clients add with timeout instead");
+        }
+        var server = new ProcessManagerServer(manager, address);
+        server.thread.start();
+        return server;
+    }
+
+    private static boolean isLoopback(SocketAddress address) {
+        return address instanceof InetSocketAddress
+                && ((InetSocketAddress) address).getAddress() != null
+                && ((InetSocketAddress) address).getAddress().isLoopbackAddress();
+    }
+
+    /**
+     * bound address, clients connect to it
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * completes when the server stopped serving, exceptionally when its selector failed, all connections are closed
+     * then
+     */
+    public CompletableFuture<Void> onStop() {
+        return stopped;
+    }
+
+    /**
+     * closes all connections, the manager is not closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(address instanceof UnixDomainSocketAddress){
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if(key.isValid() && key.isAcceptable()){
+                        accept();
+                    } else if(key.isValid()){
+                        ((Connection) key.attachment()).handle(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+                Connection connection;
+                while ((connection = completed.poll()) != null) {
+                    connection.writeCompleted();
+                }
+            }
+            stopped.complete(null);
+        } catch (IOException | RuntimeException e) {
+            // connections handle their own failures, so only the selector failed and nothing can be served anymore
+            stopped.completeExceptionally(e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * failed connection is closed and the server keeps serving the others, e.g. when it runs out of file descriptors
+     */
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = server.accept();
+            if(channel == null){
+                return;
+            }
+            channel.configureBlocking(false);
+            var connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        } catch (IOException e) {
+            if(channel != null){
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // nothing can be done, connection is dropped anyway
+        }
+    }
+
+    private static ByteBuffer added(ByteBuffer output, int requestId, Optional<Process> added) {
+        if(added.isEmpty()){
+            return status(output, requestId, EMPTY);
+        }
+        output = ensure(output, HEADER + processSize(added.get()));
+        var start = begin(output, requestId, OK);
+        writeProcess(output, added.get());
+        return end(output, start);
+    }
+
+    private static ByteBuffer deleted(ByteBuffer output, int requestId, boolean deleted) {
+        output = ensure(output, HEADER + Byte.BYTES);
+        var start = begin(output, requestId, OK);
+        output.put((byte) (deleted ? 1 : 0));
+        return end(output, start);
+    }
+
+    /**
+     * page of processes from given index, it ends before the process which would not fit into
+     * {@link Protocol#MAX_FRAME}
+     *
+     * @return index after the page
+     */
+    private static int pageEnd(List<Process> processes, int from) {
+        var to = from;
+        var size = HEADER + Integer.BYTES + Byte.BYTES;
+        while (to < processes.size() && size + processSize(processes.get(to)) <= MAX_FRAME) {
+            size += processSize(processes.get(to++));
+        }
+        return to;
+    }
+
+    private static ByteBuffer snapshot(ByteBuffer output, int requestId, List<Process> processes, int from, int to) {
+        var size = HEADER + Integer.BYTES + Byte.BYTES;
+        for (int i = from; i < to; i++) {
+            size += processSize(processes.get(i));
+        }
+        output = ensure(output, size);
+        var start = begin(output, requestId, OK);
+        output.putInt(to - from);
+        output.put((byte) (to < processes.size() ? 1 : 0));
+        for (int i = from; i < to; i++) {
+            writeProcess(output, processes.get(i));
+        }
+        return end(output, start);
+    }
+
+    /**
+     * snapshots are ordered by sequence, so the page starts are found by binary search
+     */
+    private static int firstAfter(List<Process> processes, long sequence) {
+        int low = 0;
+        int high = processes.size();
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if(processes.get(middle).getSequence() <= sequence){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static ByteBuffer error(ByteBuffer output, int requestId, String message) {
+        var text = message == null ? "Invalid request" : message;
+        output = ensure(output, HEADER + stringSize(text));
+        var start = begin(output, requestId, ERROR);
+        writeString(output, text);
+        return end(output, start);
+    }
+
+    private static ByteBuffer status(ByteBuffer output, int requestId, byte status) {
+        output = ensure(output, HEADER);
+        return end(output, begin(output, requestId, status));
+    }
+
+    /**
+     * @return position of the length, which is written when the frame ends
+     */
+    private static int begin(ByteBuffer output, int requestId, byte status) {
+        var start = output.position();
+        output.putInt(0).putInt(requestId).put(status);
+        return start;
+    }
+
+    private static ByteBuffer end(ByteBuffer output, int start) {
+        output.putInt(start, output.position() - start - Integer.BYTES);
+        return output;
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+        // unwritten responses, in write mode
+        private ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+        // flipped responses of waiting adds, they are written by other threads
+        private final ConcurrentLinkedQueue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+        // snapshot the client is reading in pages, it is taken by the first page and dropped after the last one
+        private List<Process> paged;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void handle(SelectionKey key) {
+            try {
+                if(key.isReadable()){
+                    read();
+                } else if(key.isWritable()){
+                    flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                // invalid frame or failure of the manager, only this connection is dropped
+                closeQuietly(key);
+            }
+        }
+
+        private void read() throws IOException {
+            if(channel.read(input) < 0){
+                closeQuietly(key);
+                return;
+            }
+            input.flip();
+            while (input.remaining() >= Integer.BYTES) {
+                var length = input.getInt(input.position());
+                if(length < HEADER - Integer.BYTES || length > MAX_FRAME){
+                    throw new IllegalStateException("Invalid frame length " + length);
+                }
+                if(input.remaining() < Integer.BYTES + length){
+                    break;
+                }
+                var end = input.position() + Integer.BYTES + length;
+                var frame = input.slice(input.position() + Integer.BYTES, length);
+                input.position(end);
+                request(frame);
+            }
+            input.compact();
+            if(input.position() >= Integer.BYTES && !input.hasRemaining()){
+                // frame does not fit, its length was checked above
+                var larger = ByteBuffer.allocate(Integer.BYTES + input.getInt(0));
+                input.flip();
+                input = larger.put(input);
+            }
+            flush();
+        }
+
+        private void request(ByteBuffer frame) {
+            var requestId = frame.getInt();
+            var opcode = frame.get();
+            try {
+                switch (opcode) {
+                    case ADD:
+                        add(requestId, readPriority(frame), frame.getLong());
+                        break;
+                    case DELETE:
+                        output = deleted(output, requestId, manager.delete(readString(frame)));
+                        break;
+                    case DELETE_PRIORITY:
+                        output = deleted(output, requestId, manager.deleteAllProcessesWithPriority(readPriority(frame)));
+                        break;
+                    case SNAPSHOT:
+                        snapshot(requestId, frame.getLong());
+                        break;
+                    default:
+                        output = error(output, requestId, "Unknown opcode " + opcode);
+                }
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                output = error(output, requestId, e.getMessage());
+            }
+        }
+
+        /**
+         * pages continue in the snapshot taken by the first one, so reading N processes copies the manager once
+         */
+        private void snapshot(int requestId, long after) {
+            if(after == Long.MIN_VALUE || paged == null){
+                paged = manager.getSnapshot();
+            }
+            var from = firstAfter(paged, after);
+            var to = pageEnd(paged, from);
+            output = ProcessManagerServer.snapshot(output, requestId, paged, from, to);
+            if(to == paged.size()){
+                paged = null;
+            }
+        }
+
+        private void add(int requestId, Process.Priority priority, long timeout) {
+            if(timeout < 0){
+                output = added(output, requestId, manager.addProcess(priority));
+                return;
+            }
+            manager.addProcessAsync(priority, Duration.ofMillis(timeout)).whenComplete((added, failure) -> {
+                var response = ByteBuffer.allocate(BUFFER_SIZE);
+                response = failure == null
+                        ? added(response, requestId, added)
+                        : error(response, requestId, failure.getMessage());
+                responses.add(response.flip());
+                completed.add(this);
+                selector.wakeup();
+            });
+        }
+
+        private void writeCompleted() {
+            if(!key.isValid()){
+                return;
+            }
+            ByteBuffer response;
+            while ((response = responses.poll()) != null) {
+                output = ensure(output, response.remaining());
+                output.put(response);
+            }
+            try {
+                flush();
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(key);
+            }
+        }
+
+        private void flush() throws IOException {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            var pending = output.position();
+            if(pending == 0 && output.capacity() > BUFFER_SIZE){
+                output = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+            if(pending > BUFFER_SIZE){
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(pending > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.pawele.server;
+
+import org.pawele.Process;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Binary frames exchanged by {@link ProcessManagerServer} and {@link ProcessManagerClient}, all numbers are big endian:
+ * - request: length (int, bytes after it), request id (int), opcode (byte), payload
+ * - response: length (int), request id (int), status (byte), payload
+ * - process: id (short length and UTF-8), priority level (unsigned byte), sequence (long), created at (epoch seconds long, nanos int)
+ * - responses carry id of their request, so requests may be pipelined and answered out of order
+ */
+final class Protocol {
+
+    /**
+     * bound of frames in both directions, larger snapshots are sent in pages
+     */
+    static final int MAX_FRAME = 1 << 20;
+    static final int HEADER = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * payload: priority level (unsigned byte), timeout in milliseconds (long), negative adds without waiting
+     * response: process, or status {@link #EMPTY} when it was not added
+     */
+    static final byte ADD = 1;
+    /**
+     * payload: id, response: deleted (byte)
+     */
+    static final byte DELETE = 2;
+    /**
+     * payload: priority level (unsigned byte), response: deleted (byte)
+     */
+    static final byte DELETE_PRIORITY = 3;
+    /**
+     * payload: sequence (long) the page starts after, {@link Long#MIN_VALUE} takes a new snapshot and other pages
+     * continue in it, response: count (int), more (byte, 1 when processes after the page were left out) and processes
+     * in sequence order, as many as fit into {@link #MAX_FRAME}
+     */
+    static final byte SNAPSHOT = 4;
+
+    static final byte OK = 0;
+    static final byte EMPTY = 1;
+    /**
+     * payload: message, request was invalid
+     */
+    static final byte ERROR = 2;
+
+    private Protocol() {
+    }
+
+    static void writeString(ByteBuffer buffer, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > 0xFFFF){
+            throw new IllegalArgumentException("String must be not longer than 65535 bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * upper bound of bytes taken by the string
+     */
+    static int stringSize(String value) {
+        return Short.BYTES + value.length() * 3;
+    }
+
+    static void writePriority(ByteBuffer buffer, Process.Priority priority) {
+        buffer.put((byte) priority.getLevel());
+    }
+
+    static Process.Priority readPriority(ByteBuffer buffer) {
+        return Process.Priority.of(Byte.toUnsignedInt(buffer.get()));
+    }
+
+    static int processSize(Process process) {
+        return stringSize(process.getId()) + Byte.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    }
+
+    static void writeProcess(ByteBuffer buffer, Process process) {
+        writeString(buffer, process.getId());
+        writePriority(buffer, process.getPriority());
+        buffer.putLong(process.getSequence());
+        var createdAt = process.getCreatedAt();
+        buffer.putLong(createdAt.getEpochSecond());
+        buffer.putInt(createdAt.getNano());
+    }
+
+    static RemoteProcess readProcess(ByteBuffer buffer) {
+        var id = readString(buffer);
+        var priority = readPriority(buffer);
+        var sequence = buffer.getLong();
+        var createdAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        return new RemoteProcess(id, priority, sequence, createdAt);
+    }
+
+    /**
+     * @return the buffer when it has room for given number of bytes, otherwise larger copy of it
+     */
+    static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if(buffer.remaining() >= bytes){
+            return buffer;
+        }
+        var larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+}
@@ -0,0 +1,67 @@
+package org.pawele.server;
+
+import org.pawele.Process;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Process of the manager served by {@link ProcessManagerServer}, as it was when the response was written
+ */
+public class RemoteProcess {
+    private final String id;
+    private final Process.Priority priority;
+    private final long sequence;
+    private final Instant createdAt;
+
+    RemoteProcess(String id, Process.Priority priority, long sequence, Instant createdAt) {
+        this.id = id;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Process.Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * see {@link Process#getSequence()}
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()){
+            return false;
+        }
+        RemoteProcess that = (RemoteProcess) o;
+        return id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteProcess{" +
+                "id='" + id + '\'' +
+                ", priority=" + priority +
+                '}';
+    }
+}
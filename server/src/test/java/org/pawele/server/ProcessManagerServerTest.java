@@ -0,0 +1,213 @@
+package org.pawele.server;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pawele.Process;
+import org.pawele.ProcessManager;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.within;
+
+class ProcessManagerServerTest {
+
+    private ProcessManagerServer server;
+    private ProcessManagerClient client;
+
+    @AfterEach
+    void close() throws IOException {
+        if(client != null){
+            client.close();
+        }
+        if(server != null){
+            server.close();
+        }
+    }
+
+    @Test
+    void processesShouldBeManagedOverLoopback() throws Exception {
+        //given
+        var manager = new ProcessManager(3);
+        connect(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        //when
+        var low = get(client.addProcess(Process.Priority.LOW));
+        var medium = get(client.addProcess(Process.Priority.MEDIUM));
+        var high = get(client.addProcess(Process.Priority.HIGH));
+        var rejected = get(client.addProcess(Process.Priority.HIGH));
+        var deleted = get(client.delete(medium.get()));
+        var deletedAgain = get(client.delete(medium.get()));
+        var deletedLow = get(client.deleteAllProcessesWithPriority(Process.Priority.LOW));
+        var snapshot = get(client.getSnapshot());
+
+        //then
+        Assertions.assertThat(low).isPresent();
+        Assertions.assertThat(rejected).isEmpty();
+        Assertions.assertThat(deleted).isTrue();
+        Assertions.assertThat(deletedAgain).isFalse();
+        Assertions.assertThat(deletedLow).isTrue();
+        Assertions.assertThat(snapshot).containsExactly(high.get());
+        var local = manager.getProcesses().get(0);
+        Assertions.assertThat(snapshot.get(0).getPriority()).isEqualTo(Process.Priority.HIGH);
+        Assertions.assertThat(snapshot.get(0).getSequence()).isEqualTo(local.getSequence());
+        Assertions.assertThat(snapshot.get(0).getCreatedAt()).isCloseTo(local.getCreatedAt(), within(1, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    void processesShouldBeManagedOverUnixDomainSocket(@TempDir Path directory) throws Exception {
+        //given
+        var manager = new ProcessManager(3);
+        connect(manager, UnixDomainSocketAddress.of(directory.resolve("manager.sock")));
+
+        //when
+        var added = get(client.addProcess(Process.Priority.LOW));
+
+        //then
+        Assertions.assertThat(added.get().getId()).isEqualTo(manager.getProcesses().get(0).getId());
+        Assertions.assertThat(get(client.getSnapshot())).containsExactly(added.get());
+    }
+
+    @Test
+    void pipelinedRequestsShouldBeAnsweredInOrderOfSending() throws Exception {
+        //given
+        var manager = new ProcessManager(10_000);
+        connect(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        //when
+        var futures = new ArrayList<CompletableFuture<Optional<RemoteProcess>>>();
+        for (int i = 0; i < 5_000; i++) {
+            futures.add(client.addProcess(Process.Priority.values()[i % 3]));
+        }
+        var snapshot = client.getSnapshot();
+
+        //then
+        var sequences = new ArrayList<Long>();
+        for (CompletableFuture<Optional<RemoteProcess>> future : futures) {
+            sequences.add(get(future).get().getSequence());
+        }
+        Assertions.assertThat(sequences).isSorted();
+        Assertions.assertThat(get(snapshot)).hasSize(5_000);
+        Assertions.assertThat(manager.size()).isEqualTo(5_000);
+    }
+
+    @Test
+    void snapshotLargerThanFrameShouldBeReadInPages() throws Exception {
+        //given
+        var manager = new ProcessManager(30_000);
+        manager.addProcesses(Process.Priority.MEDIUM, 30_000);
+        connect(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        //when
+        var snapshot = get(client.getSnapshot());
+
+        //then
+        Assertions.assertThat(manager.getSnapshot().stream().mapToInt(Protocol::processSize).sum()).isGreaterThan(Protocol.MAX_FRAME);
+        Assertions.assertThat(snapshot).extracting(RemoteProcess::getId)
+                .containsExactlyElementsOf(manager.getSnapshot().stream().map(Process::getId).toList());
+    }
+
+    @Test
+    void invalidFrameShouldCloseOnlyItsConnection() throws Exception {
+        //given
+        var manager = new ProcessManager(3);
+        connect(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        //when
+        try (var invalid = SocketChannel.open(server.getAddress())) {
+            invalid.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MAX_VALUE));
+            var closed = invalid.read(ByteBuffer.allocate(1));
+
+            //then
+            Assertions.assertThat(closed).isEqualTo(-1);
+        }
+        Assertions.assertThat(get(client.addProcess(Process.Priority.LOW))).isPresent();
+        Assertions.assertThat(server.onStop()).isNotDone();
+        server.close();
+        Assertions.assertThat(server.onStop()).isCompleted();
+        server = null;
+    }
+
+    @Test
+    void addWithTimeoutShouldWaitForSpaceWithoutBlockingOtherRequests() throws Exception {
+        //given
+        var manager = new ProcessManager(1);
+        connect(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        var first = get(client.addProcess(Process.Priority.LOW));
+
+        //when
+        var waiting = client.addProcess(Process.Priority.HIGH, Duration.ofSeconds(10));
+        var timedOut = client.addProcess(Process.Priority.HIGH, Duration.ZERO);
+        var deleted = get(client.delete(first.get()));
+
+        //then
+        Assertions.assertThat(deleted).isTrue();
+        Assertions.assertThat(get(waiting)).isPresent();
+        Assertions.assertThat(get(timedOut)).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).extracting(Process::getPriority).containsExactly(Process.Priority.HIGH);
+    }
+
+    @Test
+    void pendingRequestsShouldFailWhenServerIsClosed() throws Exception {
+        //given
+        var manager = new ProcessManager(1);
+        connect(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        get(client.addProcess(Process.Priority.LOW));
+        var waiting = client.addProcess(Process.Priority.LOW, Duration.ofSeconds(10));
+
+        //when
+        server.close();
+        server = null;
+
+        //then
+        Assertions.assertThatThrownBy(() -> get(waiting))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+        Assertions.assertThatThrownBy(() -> get(client.getSnapshot()))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void invalidServerWillThrowAnException() {
+        var address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        Assertions.assertThatThrownBy(() -> ProcessManagerServer.start(null, address))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Manager must be not null");
+        Assertions.assertThatThrownBy(() -> ProcessManagerServer.start(new ProcessManager(1), new InetSocketAddress(0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Address must be Unix-domain or loopback");
+        Assertions.assertThatThrownBy(() -> ProcessManagerServer.start(new ProcessManager(1),
+                        InetSocketAddress.createUnresolved("localhost", 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Address must be Unix-domain or loopback");
+        Assertions.assertThatThrownBy(() -> ProcessManagerServer.start(
+                        new ProcessManager(1, ProcessManager.OverflowStrategy.BLOCK), address))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Server does not support BLOCK overflow strategy, clients add with timeout instead");
+    }
+
+    private void connect(ProcessManager manager, SocketAddress address) throws IOException {
+        server = ProcessManagerServer.start(manager, address);
+        client = ProcessManagerClient.connect(server.getAddress());
+    }
+
+    private static <T> T get(CompletableFuture<T> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,71 @@
+package org.pawele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds processes into a manager which is already full, so every add goes through the overflow strategy. Contention
+ * is measured by running it with more threads (-t).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddProcessBenchmark {
+
+    @Param({"SKIP", "REMOVE_OLDEST", "REMOVE_OLDEST_LESS_IMPORTANT", "REMOVE_OLDEST_RING_BUFFER",
+            "REMOVE_OLDEST_SHARDED", "REMOVE_OLDEST_LESS_IMPORTANT_SHARDED", "REMOVE_OLDEST_OFF_HEAP"})
+    public String strategy;
+
+    @Param({"1000", "1000000"})
+    public int capacity;
+
+    /**
+     * UNIFORM, MOSTLY_LOW or MOSTLY_HIGH
+     */
+    @Param({"UNIFORM"})
+    public String priorityMix;
+
+    private ProcessManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkSupport.createManager(strategy, capacity);
+        BenchmarkSupport.fill(manager, BenchmarkSupport.priorities(priorityMix, 0), capacity);
+    }
+
+    @State(Scope.Thread)
+    public static class Priorities {
+        private Process.Priority[] priorities;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(AddProcessBenchmark benchmark) {
+            priorities = BenchmarkSupport.priorities(benchmark.priorityMix, Thread.currentThread().getId());
+        }
+
+        Process.Priority next() {
+            return priorities[next++ & (BenchmarkSupport.PRIORITIES_LENGTH - 1)];
+        }
+    }
+
+    @Benchmark
+    public Optional<Process> addProcess(Priorities priorities) {
+        return manager.addProcess(priorities.next());
+    }
+}
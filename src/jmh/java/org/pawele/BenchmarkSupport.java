@@ -0,0 +1,84 @@
+package org.pawele;
+
+import java.util.Random;
+
+/**
+ * Builds managers and priority sequences shared by benchmarks
+ */
+final class BenchmarkSupport {
+
+    static final int PRIORITIES_LENGTH = 1 << 12;
+    static final int SHARDS = 8;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * @param configuration name of overflow strategy, or REMOVE_OLDEST_RING_BUFFER for ring buffer storage,
+     *                      strategy name with _SHARDED suffix for sharded storage or _OFF_HEAP for off-heap storage
+     */
+    static ProcessManager createManager(String configuration, int capacity) {
+        if (configuration.endsWith("_OFF_HEAP")) {
+            return ProcessManager.builder()
+                    .capacity(capacity)
+                    .overflowStrategy(ProcessManager.OverflowStrategy.valueOf(
+                            configuration.substring(0, configuration.length() - "_OFF_HEAP".length())
+                    ))
+                    .storage(ProcessManager.Storage.OFF_HEAP)
+                    .build();
+        }
+        if (configuration.endsWith("_SHARDED")) {
+            return ProcessManager.builder()
+                    .capacity(capacity)
+                    .overflowStrategy(ProcessManager.OverflowStrategy.valueOf(
+                            configuration.substring(0, configuration.length() - "_SHARDED".length())
+                    ))
+                    .shards(SHARDS)
+                    .build();
+        }
+        if ("REMOVE_OLDEST_RING_BUFFER".equals(configuration)) {
+            return ProcessManager.builder()
+                    .capacity(capacity)
+                    .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                    .storage(ProcessManager.Storage.RING_BUFFER)
+                    .build();
+        }
+        return ProcessManager.builder()
+                .capacity(capacity)
+                .overflowStrategy(ProcessManager.OverflowStrategy.valueOf(configuration))
+                .build();
+    }
+
+    /**
+     * @param mix UNIFORM, MOSTLY_LOW (80% LOW, 15% MEDIUM, 5% HIGH) or MOSTLY_HIGH (the other way around)
+     */
+    static Process.Priority[] priorities(String mix, long seed) {
+        var random = new Random(seed);
+        var priorities = new Process.Priority[PRIORITIES_LENGTH];
+        for (int i = 0; i < priorities.length; i++) {
+            var draw = random.nextInt(100);
+            switch (mix) {
+                case "UNIFORM":
+                    priorities[i] = Process.Priority.values()[draw % 3];
+                    break;
+                case "MOSTLY_LOW":
+                    priorities[i] = draw < 80 ? Process.Priority.LOW
+                            : draw < 95 ? Process.Priority.MEDIUM : Process.Priority.HIGH;
+                    break;
+                case "MOSTLY_HIGH":
+                    priorities[i] = draw < 80 ? Process.Priority.HIGH
+                            : draw < 95 ? Process.Priority.MEDIUM : Process.Priority.LOW;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown priority mix: " + mix);
+            }
+        }
+        return priorities;
+    }
+
+    static void fill(ProcessManager manager, Process.Priority[] priorities, int count) {
+        for (int i = 0; i < count; i++) {
+            manager.addProcess(priorities[i & (PRIORITIES_LENGTH - 1)]);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.pawele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations touching all processes of a full manager. Reading benchmarks share one manager. Deleting ones run
+ * once per iteration (single shot) on a manager of their own thread refilled before the iteration, so refilling is
+ * not measured, it does not run per invocation and threads (-t) never delete processes refilled for others.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkBenchmark {
+
+    @Param({"SKIP", "REMOVE_OLDEST", "REMOVE_OLDEST_LESS_IMPORTANT", "REMOVE_OLDEST_RING_BUFFER"})
+    public String strategy;
+
+    @Param({"1000", "1000000"})
+    public int capacity;
+
+    /**
+     * UNIFORM, MOSTLY_LOW or MOSTLY_HIGH
+     */
+    @Param({"UNIFORM"})
+    public String priorityMix;
+
+    private ProcessManager manager;
+    private Process.Priority[] priorities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkSupport.createManager(strategy, capacity);
+        priorities = BenchmarkSupport.priorities(priorityMix, 0);
+        BenchmarkSupport.fill(manager, priorities, capacity);
+    }
+
+    @State(Scope.Thread)
+    public static class Full {
+        private ProcessManager manager;
+
+        @Setup(Level.Iteration)
+        public void refill(BulkBenchmark benchmark) {
+            if (manager == null) {
+                manager = BenchmarkSupport.createManager(benchmark.strategy, benchmark.capacity);
+            } else {
+                manager.deleteAll();
+            }
+            BenchmarkSupport.fill(manager, benchmark.priorities, benchmark.capacity);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public boolean deleteAllProcessesWithPriority(Full full) {
+        return full.manager.deleteAllProcessesWithPriority(Process.Priority.LOW);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public boolean deleteAll(Full full) {
+        return full.manager.deleteAll();
+    }
+
+    @Benchmark
+    public List<Process> getProcesses() {
+        return manager.getProcesses();
+    }
+
+    @Benchmark
+    public List<Process> getSnapshot() {
+        return manager.getSnapshot();
+    }
+
+    @Benchmark
+    public long streamCount() {
+        return manager.stream().filter(process -> process.getPriority() == Process.Priority.LOW).count();
+    }
+}
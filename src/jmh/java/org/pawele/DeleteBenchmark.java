@@ -0,0 +1,74 @@
+package org.pawele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every operation adds a process into a half full manager and deletes it, so the manager keeps its size. Contention
+ * is measured by running it with more threads (-t).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeleteBenchmark {
+
+    @Param({"SKIP", "REMOVE_OLDEST", "REMOVE_OLDEST_LESS_IMPORTANT", "REMOVE_OLDEST_RING_BUFFER"})
+    public String strategy;
+
+    @Param({"1000", "1000000"})
+    public int capacity;
+
+    /**
+     * UNIFORM, MOSTLY_LOW or MOSTLY_HIGH
+     */
+    @Param({"UNIFORM"})
+    public String priorityMix;
+
+    private ProcessManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkSupport.createManager(strategy, capacity);
+        BenchmarkSupport.fill(manager, BenchmarkSupport.priorities(priorityMix, 0), capacity / 2);
+    }
+
+    @State(Scope.Thread)
+    public static class Priorities {
+        private Process.Priority[] priorities;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(DeleteBenchmark benchmark) {
+            priorities = BenchmarkSupport.priorities(benchmark.priorityMix, Thread.currentThread().getId());
+        }
+
+        Process.Priority next() {
+            return priorities[next++ & (BenchmarkSupport.PRIORITIES_LENGTH - 1)];
+        }
+    }
+
+    @Benchmark
+    public boolean addAndDelete(Priorities priorities) {
+        return manager.addProcess(priorities.next()).map(manager::delete).orElse(false);
+    }
+
+    @Benchmark
+    public boolean addAndDeleteById(Priorities priorities) {
+        return manager.addProcess(priorities.next()).map(process -> manager.delete(process.getId())).orElse(false);
+    }
+}
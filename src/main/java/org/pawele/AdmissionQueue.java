@@ -0,0 +1,137 @@
+package org.pawele;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Processes waiting for capacity, the most important are admitted first and processes with the same
+ * priority in order of arrival.
+ * - waiter is only a future, no thread is parked for it, callers which block wait on the future
+ * - ReentrantLock is used instead of monitor, so blocked virtual threads do not pin carrier threads
+ * - futures are completed outside of the lock, as callers may continue on the completing thread
+ * - waiters whose priority is blocked by its quota are skipped, so they do not hold back less important waiters,
+ *   admission stops only at the first waiter which does not fit the capacity
+ */
+class AdmissionQueue {
+
+    private static final Comparator<Waiter> ORDER = Comparator
+            .comparing((Waiter waiter) -> waiter.process.getPriority(), Comparator.reverseOrder())
+            .thenComparingLong(waiter -> waiter.arrival);
+
+    private final Predicate<Process> add;
+    private final Consumer<Process> withdraw;
+    private final Predicate<Process> fitsQuota;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(ORDER);
+    // read without lock, so adds and deletes can skip the queue when nobody waits
+    private volatile int size;
+    private long arrivals;
+
+    /**
+     * @param add       tries to add process into released capacity
+     * @param withdraw  removes process which was added, but its waiter timed out in the meantime
+     * @param fitsQuota false when quota of the process priority (or slots reserved for others) does not let it in
+     *                  even if there is capacity
+     */
+    AdmissionQueue(Predicate<Process> add, Consumer<Process> withdraw, Predicate<Process> fitsQuota) {
+        this.add = add;
+        this.withdraw = withdraw;
+        this.fitsQuota = fitsQuota;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param timeout nanoseconds to wait, negative waits without limit
+     * @return future completed with the process once it was added, or empty when timeout elapsed
+     */
+    CompletableFuture<Optional<Process>> enqueue(Process process, long timeout) {
+        var waiter = new Waiter(process);
+        lock.lock();
+        try {
+            waiter.arrival = arrivals++;
+            waiters.add(waiter);
+            size = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+        if (timeout >= 0) {
+            waiter.future.completeOnTimeout(Optional.empty(), timeout, TimeUnit.NANOSECONDS);
+            waiter.future.thenAccept(added -> {
+                if (added.isEmpty()) {
+                    remove(waiter);
+                }
+            });
+        }
+        // capacity might have been released before waiter was queued
+        admit();
+        return waiter.future;
+    }
+
+    /**
+     * adds waiting processes while there is capacity for them
+     */
+    void admit() {
+        if (isEmpty()) {
+            return;
+        }
+        List<Waiter> admitted = new ArrayList<>();
+        List<Waiter> skipped = new ArrayList<>();
+        lock.lock();
+        try {
+            Waiter waiter;
+            while ((waiter = waiters.peek()) != null) {
+                if (waiter.future.isDone()) {
+                    waiters.poll();
+                } else if (!fitsQuota.test(waiter.process)) {
+                    skipped.add(waiters.poll());
+                } else if (add.test(waiter.process)) {
+                    waiters.poll();
+                    admitted.add(waiter);
+                } else {
+                    break;
+                }
+            }
+            // they keep their arrival, so their order is not changed
+            waiters.addAll(skipped);
+            size = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+        for (Waiter waiter : admitted) {
+            if (!waiter.future.complete(Optional.of(waiter.process))) {
+                withdraw.accept(waiter.process);
+            }
+        }
+    }
+
+    private void remove(Waiter waiter) {
+        lock.lock();
+        try {
+            waiters.remove(waiter);
+            size = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        private final Process process;
+        private final CompletableFuture<Optional<Process>> future = new CompletableFuture<>();
+        private long arrival;
+
+        private Waiter(Process process) {
+            this.process = process;
+        }
+    }
+}
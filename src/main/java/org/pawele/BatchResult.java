@@ -0,0 +1,30 @@
+package org.pawele;
+
+import java.util.List;
+
+/**
+ * Result of adding processes in a batch, processes of the batch which are not in added were skipped
+ */
+public class BatchResult {
+    private final List<Process> added;
+    private final List<Process> evicted;
+
+    BatchResult(List<Process> added, List<Process> evicted) {
+        this.added = added;
+        this.evicted = evicted;
+    }
+
+    /**
+     * added processes in the batch order
+     */
+    public List<Process> getAdded() {
+        return added;
+    }
+
+    /**
+     * processes removed to make space for the batch, they are already being killed
+     */
+    public List<Process> getEvicted() {
+        return evicted;
+    }
+}
@@ -0,0 +1,109 @@
+package org.pawele;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capacity which may be shared by several storages, slots are reserved with CAS before processes are linked
+ * and released after they are unlinked.
+ * - limit can be changed at any time, when it is lowered below used slots, reservations fail until enough slots
+ *   are released
+ * - capacity may have a parent (budget shared by several capacities), slots are reserved in both, so used slots
+ *   never exceed any of them
+ * - capacity with no used slots can be retired, then nothing can be reserved in it anymore
+ */
+class Capacity {
+
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final Capacity parent;
+    private volatile int limit;
+    // it also counts slots reserved for processes which are not linked yet
+    private final AtomicInteger used = new AtomicInteger();
+
+    Capacity(int limit) {
+        this(limit, null);
+    }
+
+    Capacity(int limit, Capacity parent) {
+        this.limit = limit;
+        this.parent = parent;
+    }
+
+    boolean reserve() {
+        return reserve(1) == 1;
+    }
+
+    /**
+     * @return number of reserved slots, it may be lower than requested when there is not enough capacity
+     */
+    int reserve(int count) {
+        int current;
+        int reserved;
+        do {
+            current = used.get();
+            if (current == RETIRED) {
+                return 0;
+            }
+            reserved = Math.min(count, limit - current);
+            if (reserved <= 0) {
+                return 0;
+            }
+        } while (!used.compareAndSet(current, current + reserved));
+        if (parent == null) {
+            return reserved;
+        }
+        var granted = parent.reserve(reserved);
+        if (granted < reserved) {
+            used.addAndGet(granted - reserved);
+        }
+        return granted;
+    }
+
+    void release(int count) {
+        used.addAndGet(-count);
+        if (parent != null) {
+            parent.release(count);
+        }
+    }
+
+    /**
+     * @return false when some slots are used
+     */
+    boolean retire() {
+        return used.compareAndSet(0, RETIRED);
+    }
+
+    void unretire() {
+        used.compareAndSet(RETIRED, 0);
+    }
+
+    boolean isRetired() {
+        return used.get() == RETIRED;
+    }
+
+    /**
+     * @return true when all slots of this capacity are used, it says nothing about the parent
+     */
+    boolean isFull() {
+        return used.get() >= limit;
+    }
+
+    int used() {
+        return Math.max(0, used.get());
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    void limit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return number of used slots above the limit
+     */
+    int surplus() {
+        return Math.max(0, used() - limit);
+    }
+}
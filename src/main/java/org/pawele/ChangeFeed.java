@@ -0,0 +1,135 @@
+package org.pawele;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Preallocated ring of the latest changes, publishers never wait for subscribers: the oldest changes are
+ * overwritten and subscribers which did not read them notice it by sequence of the slot.
+ * - position of a change is claimed with one getAndIncrement, slot is then taken by CAS and released by writing
+ *   the position, so publishing never blocks
+ * - slot fields are written and read between two reads of its sequence (seqlock), change overwritten during reading
+ *   is detected and treated as missed
+ * - publisher which finds its slot still written by a publisher from the previous lap gives the slot up, its change
+ *   is lost and its position is marked as given up, so subscribers skip it as missed instead of waiting for it
+ * - slots keep references to processes until they are overwritten
+ */
+class ChangeFeed {
+
+    /**
+     * returned by {@link #read(long)} when the change was overwritten
+     */
+    static final ProcessChange OVERWRITTEN = new ProcessChange(ProcessChange.Type.MISSED, -1, null, null, 0);
+
+    private static final long EMPTY = -1;
+    private static final long BUSY = -2;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * @param size rounded up to power of two
+     */
+    ChangeFeed(int size) {
+        var length = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        this.slots = new Slot[length];
+        this.mask = length - 1;
+        for (int i = 0; i < length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    /**
+     * position the next change will get
+     */
+    long tail() {
+        return claimed.get();
+    }
+
+    void publish(ProcessChange.Type type, Process process, ProcessManager.OverflowStrategy overflowStrategy) {
+        var position = claim();
+        if (take(position)) {
+            write(position, type, process, overflowStrategy);
+        }
+    }
+
+    long claim() {
+        return claimed.getAndIncrement();
+    }
+
+    /**
+     * marks slot of claimed position as being written
+     *
+     * @return false when slot was given up, because it is being written by other publisher or it was already
+     * overwritten
+     */
+    boolean take(long position) {
+        var slot = slots[(int) position & mask];
+        long current;
+        do {
+            current = slot.sequence;
+            if (current == BUSY || current > position) {
+                slot.giveUp(position);
+                return false;
+            }
+        } while (!slot.compareAndSetSequence(current, BUSY));
+        return true;
+    }
+
+    void write(long position, ProcessChange.Type type, Process process,
+               ProcessManager.OverflowStrategy overflowStrategy) {
+        var slot = slots[(int) position & mask];
+        slot.type = type;
+        slot.process = process;
+        slot.overflowStrategy = overflowStrategy;
+        slot.sequence = position;
+    }
+
+    /**
+     * @return change at given position, null when it is not published yet, {@link #OVERWRITTEN} when it was
+     * already overwritten or its publisher gave it up
+     */
+    ProcessChange read(long position) {
+        var slot = slots[(int) position & mask];
+        var sequence = slot.sequence;
+        if (sequence > position || (sequence != position
+                && (slot.givenUp >= position || claimed.get() > position + slots.length))) {
+            return OVERWRITTEN;
+        }
+        if (sequence != position) {
+            return null;
+        }
+        var change = new ProcessChange(slot.type, position, slot.process, slot.overflowStrategy, 0);
+        if (slot.sequence != position) {
+            return OVERWRITTEN;
+        }
+        return change;
+    }
+
+    private static final class Slot {
+        private static final AtomicLongFieldUpdater<Slot> SEQUENCE =
+                AtomicLongFieldUpdater.newUpdater(Slot.class, "sequence");
+        private static final AtomicLongFieldUpdater<Slot> GIVEN_UP =
+                AtomicLongFieldUpdater.newUpdater(Slot.class, "givenUp");
+
+        private volatile long sequence = EMPTY;
+        // the highest position given up by its publisher
+        private volatile long givenUp = EMPTY;
+        private volatile ProcessChange.Type type;
+        private volatile Process process;
+        private volatile ProcessManager.OverflowStrategy overflowStrategy;
+
+        private boolean compareAndSetSequence(long expected, long sequence) {
+            return SEQUENCE.compareAndSet(this, expected, sequence);
+        }
+
+        private void giveUp(long position) {
+            GIVEN_UP.accumulateAndGet(this, position, Math::max);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.pawele;
+
+import java.util.function.Consumer;
+
+/**
+ * Cursor of one subscriber in the change feed of {@link ProcessManager#subscribe(SlowConsumerPolicy)}. Subscriber
+ * reads changes at its own pace, publishers never wait for it. When it falls behind by more than the feed keeps,
+ * changes it did not read are overwritten and handled by its {@link SlowConsumerPolicy}.
+ * - subscription is not thread safe, it is meant to be polled by one thread
+ * - nothing has to be released, subscription which is not polled anymore costs nothing
+ */
+public class ChangeSubscription {
+
+    private final ChangeFeed feed;
+    private final SlowConsumerPolicy policy;
+    private long cursor;
+    private long missed;
+
+    ChangeSubscription(ChangeFeed feed, SlowConsumerPolicy policy) {
+        this.feed = feed;
+        this.policy = policy;
+        this.cursor = feed.tail();
+    }
+
+    /**
+     * passes published changes in order of publishing to the consumer
+     *
+     * @param max maximal number of changes passed in one call
+     * @return number of changes passed to the consumer
+     */
+    public int poll(Consumer<ProcessChange> consumer, int max) {
+        if(consumer == null){
+            throw new IllegalArgumentException("Consumer must be not null");
+        }
+        int polled = 0;
+        while (polled < max && cursor < feed.tail()) {
+            var change = feed.read(cursor);
+            if (change == null) {
+                break;
+            }
+            if (change == ChangeFeed.OVERWRITTEN) {
+                // continues with the oldest change which is still kept
+                var oldest = Math.max(cursor + 1, feed.tail() - feed.size());
+                var skipped = oldest - cursor;
+                missed += skipped;
+                if (policy == SlowConsumerPolicy.COALESCE) {
+                    consumer.accept(new ProcessChange(ProcessChange.Type.MISSED, cursor, null, null, skipped));
+                    polled++;
+                }
+                cursor = oldest;
+                continue;
+            }
+            consumer.accept(change);
+            cursor++;
+            polled++;
+        }
+        return polled;
+    }
+
+    /**
+     * number of changes which were overwritten before they were read
+     */
+    public long getMissed() {
+        return missed;
+    }
+
+    /**
+     * number of changes published and not read yet
+     */
+    public long getLag() {
+        return feed.tail() - cursor;
+    }
+
+    public enum SlowConsumerPolicy {
+        /**
+         * overwritten changes are skipped, they are only counted in {@link #getMissed()}
+         */
+        DROP,
+        /**
+         * consecutive overwritten changes are passed as one {@link ProcessChange.Type#MISSED} change with their
+         * count, so subscriber knows when it has to read processes again (e.g. {@link ProcessManager#getSnapshot()})
+         */
+        COALESCE
+    }
+}
@@ -0,0 +1,24 @@
+package org.pawele;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("org.pawele.ContendedAdd")
+@Label("Contended Process Add")
+@Category("Process Manager")
+@Description("Add which needed many retries to find space")
+class ContendedAddEvent extends jdk.jfr.Event {
+
+    @Label("Priority")
+    String priority;
+
+    @Label("Retries")
+    int retries;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
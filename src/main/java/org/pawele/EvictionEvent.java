@@ -0,0 +1,22 @@
+package org.pawele;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.pawele.Eviction")
+@Label("Process Eviction")
+@Category("Process Manager")
+@Description("Process removed to make space for a new one")
+class EvictionEvent extends jdk.jfr.Event {
+
+    @Label("Process Id")
+    String processId;
+
+    @Label("Priority")
+    String priority;
+
+    @Label("Overflow Strategy")
+    String overflowStrategy;
+}
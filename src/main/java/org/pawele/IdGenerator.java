@@ -0,0 +1,90 @@
+package org.pawele;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Creates processes with new ids. Numeric generators keep id as primitive {@code long}, its String form
+ * is created only when someone asks for it.
+ * - {@link #sequence()} is the default one, every manager should get its own instance
+ * - {@link #uuid()} is left for callers which need globally unique ids, it is the slowest one
+ */
+public abstract class IdGenerator {
+
+    // 2024-01-01T00:00:00Z, gives ~69 years of 41-bit milliseconds
+    static final long TIME_BASED_EPOCH = 1_704_067_200_000L;
+    static final int NODE_BITS = 10;
+    static final int COUNTER_BITS = 12;
+    static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    IdGenerator() {
+    }
+
+    Process create(Process.Priority priority) {
+        return create(priority, null);
+    }
+
+    abstract Process create(Process.Priority priority, ProcessHandle handle);
+
+    /**
+     * monotonic ids 1, 2, 3... unique within single generator
+     */
+    public static IdGenerator sequence() {
+        return sequence(0);
+    }
+
+    /**
+     * continues after given id, used when processes are restored
+     */
+    static IdGenerator sequence(long last) {
+        var sequence = new AtomicLong(last);
+        return numeric(sequence::incrementAndGet);
+    }
+
+    /**
+     * monotonic ids made of milliseconds since 2024, counter and node id (lowest bits), unique between nodes
+     * as long as they use different node ids. When counter overflows within a millisecond, next millisecond
+     * is borrowed, so ids never go back.
+     */
+    public static IdGenerator timeBased(int nodeId) {
+        if(nodeId < 0 || nodeId > MAX_NODE){
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE);
+        }
+        var last = new AtomicLong();
+        long counterUnit = 1L << NODE_BITS;
+        return numeric(() -> {
+            long now = ((System.currentTimeMillis() - TIME_BASED_EPOCH) << (COUNTER_BITS + NODE_BITS)) | nodeId;
+            long previous;
+            long next;
+            do {
+                previous = last.get();
+                next = Math.max(previous + counterUnit, now);
+            } while (!last.compareAndSet(previous, next));
+            return next;
+        });
+    }
+
+    public static IdGenerator uuid() {
+        return text(() -> UUID.randomUUID().toString());
+    }
+
+    public static IdGenerator numeric(LongSupplier ids) {
+        return new IdGenerator() {
+            @Override
+            Process create(Process.Priority priority, ProcessHandle handle) {
+                return new Process(priority, ids.getAsLong(), handle);
+            }
+        };
+    }
+
+    public static IdGenerator text(Supplier<String> ids) {
+        return new IdGenerator() {
+            @Override
+            Process create(Process.Priority priority, ProcessHandle handle) {
+                return new Process(priority, ids.get(), handle);
+            }
+        };
+    }
+}
@@ -0,0 +1,506 @@
+package org.pawele;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of adds and removals kept in memory-mapped segments, with compacted snapshots of live processes.
+ * - appending is a copy into mapped memory under a lock, segments are forced to disk in the background every
+ *   {@link #SYNC_INTERVAL} (group commit), so a crash of the JVM loses nothing, a crash of the OS the last interval
+ * - records are appended after the storage was changed, before the operation returns (it is not write-ahead), so
+ *   an operation which returned is journaled, one interrupted by a crash before it returned may be lost
+ * - when segment is full, next one is started, the full one is forced and snapshot of live processes is written in
+ *   the background, then older segments and snapshots are deleted, so the journal holds at most live processes and
+ *   two segments
+ * - failures of background work are reported to the manager, older segments are kept then, so nothing is lost,
+ *   but the journal grows until a later snapshot succeeds
+ * - recovery reads the latest snapshot and segments written after it, records carry checksum, so torn tail of the
+ *   last segment is ignored
+ * - removal of a process is written only after its add, process removed before its add was written is not written
+ *   at all
+ */
+class Journal {
+
+    // files of other versions are not read
+    static final int VERSION = 2;
+    static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    static final long SYNC_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // states of process in journal
+    static final byte NOT_WRITTEN = 0;
+    static final byte WRITTEN = 1;
+    static final byte REMOVED_BEFORE_WRITTEN = 2;
+
+    private static final int MAGIC = 0x504d4a4c;
+    private static final int HEADER_SIZE = 8;
+    // length and checksum
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte NUMERIC_ID = 0;
+    private static final byte TEXT_ID = 1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Process> recovered;
+    private final CRC32 checksum = new CRC32();
+    private long lastNumericId;
+    private long segment;
+    private MappedByteBuffer buffer;
+    private int synced;
+    private Supplier<List<Process>> liveProcesses;
+    private ScheduledExecutorService executor;
+    private Runnable onFailure;
+    private ScheduledFuture<?> syncing;
+    private boolean closed;
+
+    private Journal(Path directory, int segmentSize, List<Process> recovered, long lastNumericId, long segment) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.recovered = recovered;
+        this.lastNumericId = lastNumericId;
+        this.segment = segment;
+    }
+
+    /**
+     * reads the latest snapshot and segments written after it, nothing is written until {@link #start}
+     */
+    static Journal open(Path directory, int segmentSize) {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Journal segment size must be at least " + MIN_SEGMENT_SIZE);
+        }
+        try {
+            Files.createDirectories(directory);
+            var live = new HashMap<Object, Entry>();
+            long lastNumericId = 0;
+            long snapshot = -1;
+            for (long number : numbers(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                var lastId = readSnapshot(file(directory, SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX), live);
+                if (lastId >= 0) {
+                    lastNumericId = lastId;
+                    snapshot = number;
+                    break;
+                }
+                live.clear();
+            }
+            long last = Math.max(snapshot, 0);
+            var segments = numbers(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            Collections.reverse(segments);
+            for (long number : segments) {
+                if (number >= snapshot) {
+                    var segmentFile = file(directory, SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+                    lastNumericId = Math.max(lastNumericId, replay(segmentFile, live));
+                }
+                last = Math.max(last, number);
+            }
+            var entries = new ArrayList<>(live.values());
+            entries.sort(Comparator.comparingLong(entry -> entry.sequence));
+            var recovered = new ArrayList<Process>(entries.size());
+            for (Entry entry : entries) {
+                recovered.add(entry.process);
+            }
+            return new Journal(directory, segmentSize, recovered, lastNumericId, last + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal from " + directory, e);
+        }
+    }
+
+    /**
+     * live processes in order they were added
+     */
+    List<Process> recovered() {
+        return recovered;
+    }
+
+    /**
+     * the highest numeric id ever written, so generator can continue after it
+     */
+    synchronized long lastNumericId() {
+        return lastNumericId;
+    }
+
+    /**
+     * writes snapshot of restored processes, removes files it replaces and starts new segment
+     *
+     * @param liveProcesses processes of the manager in insertion order, used for snapshots
+     * @param onFailure     called when forcing to disk or writing snapshot in the background failed
+     */
+    synchronized void start(Supplier<List<Process>> liveProcesses, ScheduledExecutorService executor,
+                            Runnable onFailure) {
+        this.liveProcesses = liveProcesses;
+        this.executor = executor;
+        this.onFailure = onFailure;
+        try {
+            writeSnapshot(segment);
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start journal in " + directory, e);
+        }
+        syncing = executor.scheduleWithFixedDelay(() -> inBackground(this::sync), SYNC_INTERVAL, SYNC_INTERVAL,
+                TimeUnit.NANOSECONDS);
+    }
+
+    synchronized void added(Process process) {
+        if (process.journalState == REMOVED_BEFORE_WRITTEN) {
+            return;
+        }
+        append(ADD, process);
+        process.journalState = WRITTEN;
+    }
+
+    synchronized void added(List<Process> processes) {
+        for (Process process : processes) {
+            added(process);
+        }
+    }
+
+    synchronized void removed(Process process) {
+        if (process.journalState == NOT_WRITTEN) {
+            process.journalState = REMOVED_BEFORE_WRITTEN;
+            return;
+        }
+        if (process.journalState == WRITTEN) {
+            append(REMOVE, process);
+        }
+    }
+
+    synchronized void removed(List<Process> processes) {
+        for (Process process : processes) {
+            removed(process);
+        }
+    }
+
+    /**
+     * forces records appended since last call to disk, appends are not blocked while it waits for the disk. Records
+     * are taken as synced only after they were forced, so a failed force is repeated by the next sync.
+     */
+    void sync() {
+        MappedByteBuffer buffer;
+        int from;
+        int to;
+        synchronized (this) {
+            buffer = this.buffer;
+            from = synced;
+            to = buffer != null ? buffer.position() : 0;
+            if (to <= from) {
+                return;
+            }
+        }
+        buffer.force(from, to - from);
+        synchronized (this) {
+            // concurrent sync may have forced further, next segment may have been started meanwhile
+            if (this.buffer == buffer && synced < to) {
+                synced = to;
+            }
+        }
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (syncing != null) {
+            syncing.cancel(false);
+        }
+        sync();
+        buffer = null;
+    }
+
+    /**
+     * manager rejects changes after it was closed, only changes racing with closing get here and are not written
+     */
+    private void append(byte type, Process process) {
+        if (closed) {
+            return;
+        }
+        var id = process.hasNumericId() ? null : process.getId().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + (type == ADD ? 9 : 0) + 1 + (id == null ? 8 : 4 + id.length);
+        if (HEADER_SIZE + RECORD_HEADER_SIZE + length > segmentSize) {
+            throw new IllegalArgumentException("Process id is too long for journal segment");
+        }
+        if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+            nextSegment();
+        }
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_SIZE);
+        buffer.put(type);
+        if (type == ADD) {
+            buffer.put((byte) process.getPriority().getLevel());
+            buffer.putLong(process.sequence);
+        }
+        if (id == null) {
+            buffer.put(NUMERIC_ID);
+            buffer.putLong(process.getNumericId());
+            if (type == ADD) {
+                lastNumericId = Math.max(lastNumericId, process.getNumericId());
+            }
+        } else {
+            buffer.put(TEXT_ID);
+            buffer.putInt(id.length);
+            buffer.put(id);
+        }
+        checksum.reset();
+        checksum.update(buffer.slice(start + RECORD_HEADER_SIZE, length));
+        buffer.putInt(start + 4, (int) checksum.getValue());
+        // length is written last, reader stops at zero length
+        buffer.putInt(start, length);
+    }
+
+    /**
+     * next segment is started, the full one is forced and snapshot which allows to drop older segments is written
+     * in the background, so append does not wait for the disk
+     */
+    private void nextSegment() {
+        var full = buffer;
+        var from = synced;
+        var to = full.position();
+        segment++;
+        try {
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start journal segment in " + directory, e);
+        }
+        var snapshot = segment;
+        executor.execute(() -> inBackground(() -> {
+            if (to > from) {
+                full.force(from, to - from);
+            }
+            compact(snapshot);
+        }));
+    }
+
+    private void openSegment() throws IOException {
+        try (var channel = FileChannel.open(file(directory, SEGMENT_PREFIX, segment, SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        synced = 0;
+    }
+
+    /**
+     * snapshot taken after segment was started contains everything what was removed from earlier segments,
+     * processes added concurrently may be both in snapshot and in segment, replay ignores repeated adds
+     */
+    private void compact(long snapshot) {
+        try {
+            writeSnapshot(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * background task must not throw, periodic sync would not be run again
+     */
+    private void inBackground(Runnable task) {
+        try {
+            task.run();
+        } catch (UncheckedIOException e) {
+            onFailure.run();
+        }
+    }
+
+    private void writeSnapshot(long number) throws IOException {
+        var processes = liveProcesses.get();
+        long lastId = lastNumericId();
+        var data = new ArrayList<byte[]>(processes.size());
+        int size = 4 + 4 + 8 + 4;
+        for (Process process : processes) {
+            if (process.journalState == WRITTEN) {
+                var entry = entry(process);
+                data.add(entry);
+                size += entry.length;
+            }
+        }
+        var bytes = ByteBuffer.allocate(size + 8);
+        bytes.putInt(MAGIC).putInt(VERSION).putLong(lastId).putInt(data.size());
+        for (byte[] entry : data) {
+            bytes.put(entry);
+        }
+        var crc = new CRC32();
+        crc.update(bytes.array(), 0, size);
+        bytes.putLong(crc.getValue());
+        bytes.flip();
+
+        var temporary = directory.resolve(SNAPSHOT_PREFIX + number + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file(directory, SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        deleteOlderThan(number);
+    }
+
+    private synchronized void deleteOlderThan(long number) throws IOException {
+        for (long older : numbers(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (older < number) {
+                Files.deleteIfExists(file(directory, SEGMENT_PREFIX, older, SEGMENT_SUFFIX));
+            }
+        }
+        for (long older : numbers(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < number) {
+                Files.deleteIfExists(file(directory, SNAPSHOT_PREFIX, older, SNAPSHOT_SUFFIX));
+            }
+        }
+    }
+
+    private static Process.Priority priority(byte level) {
+        return Process.Priority.of(Byte.toUnsignedInt(level));
+    }
+
+    private static byte[] entry(Process process) {
+        var id = process.hasNumericId() ? null : process.getId().getBytes(StandardCharsets.UTF_8);
+        var entry = ByteBuffer.allocate(1 + 8 + 1 + (id == null ? 8 : 4 + id.length));
+        entry.put((byte) process.getPriority().getLevel()).putLong(process.sequence);
+        if (id == null) {
+            entry.put(NUMERIC_ID).putLong(process.getNumericId());
+        } else {
+            entry.put(TEXT_ID).putInt(id.length).put(id);
+        }
+        return entry.array();
+    }
+
+    /**
+     * @return the highest numeric id ever added, or -1 when snapshot is not complete
+     */
+    private static long readSnapshot(Path file, Map<Object, Entry> live) throws IOException {
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (bytes.remaining() < 28 || bytes.getInt() != MAGIC) {
+            return -1;
+        }
+        if (bytes.getInt() != VERSION) {
+            return -1;
+        }
+        var crc = new CRC32();
+        crc.update(bytes.array(), 0, bytes.limit() - 8);
+        if (bytes.getLong(bytes.limit() - 8) != crc.getValue()) {
+            return -1;
+        }
+        long lastId = bytes.getLong();
+        int count = bytes.getInt();
+        for (int i = 0; i < count; i++) {
+            var priority = priority(bytes.get());
+            long sequence = bytes.getLong();
+            var entry = new Entry(readProcess(bytes, priority), sequence);
+            live.put(entry.process.key(), entry);
+        }
+        return lastId;
+    }
+
+    /**
+     * @return the highest numeric id added in the segment
+     */
+    private static long replay(Path file, Map<Object, Entry> live) throws IOException {
+        long lastId = 0;
+        ByteBuffer bytes;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (bytes.remaining() < HEADER_SIZE || bytes.getInt() != MAGIC) {
+            return lastId;
+        }
+        if (bytes.getInt() != VERSION) {
+            return lastId;
+        }
+        var crc = new CRC32();
+        while (bytes.remaining() >= RECORD_HEADER_SIZE) {
+            int length = bytes.getInt();
+            int expected = bytes.getInt();
+            if (length <= 0 || length > bytes.remaining()) {
+                break;
+            }
+            var record = bytes.slice(bytes.position(), length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != expected) {
+                break;
+            }
+            bytes.position(bytes.position() + length);
+            if (record.get() == ADD) {
+                var priority = priority(record.get());
+                long sequence = record.getLong();
+                var entry = new Entry(readProcess(record, priority), sequence);
+                live.putIfAbsent(entry.process.key(), entry);
+                if (entry.process.hasNumericId()) {
+                    lastId = Math.max(lastId, entry.process.getNumericId());
+                }
+            } else {
+                live.remove(readProcess(record, Process.Priority.LOW).key());
+            }
+        }
+        return lastId;
+    }
+
+    private static Process readProcess(ByteBuffer bytes, Process.Priority priority) {
+        Process process;
+        if (bytes.get() == NUMERIC_ID) {
+            process = new Process(priority, bytes.getLong());
+        } else {
+            var id = new byte[bytes.getInt()];
+            bytes.get(id);
+            process = new Process(priority, new String(id, StandardCharsets.UTF_8));
+        }
+        process.journalState = WRITTEN;
+        return process;
+    }
+
+    /**
+     * numbers of files with given prefix, the newest first
+     */
+    private static List<Long> numbers(Path directory, String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            var numbers = new ArrayList<Long>();
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(prefix.length(), name.length() - suffix.length()))));
+            numbers.sort(Comparator.reverseOrder());
+            return numbers;
+        }
+    }
+
+    private static Path file(Path directory, String prefix, long number, String suffix) {
+        return directory.resolve(prefix + number + suffix);
+    }
+
+    private static final class Entry {
+        private final Process process;
+        private final long sequence;
+
+        private Entry(Process process, long sequence) {
+            this.process = process;
+            this.sequence = sequence;
+        }
+    }
+}
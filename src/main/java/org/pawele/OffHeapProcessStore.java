@@ -0,0 +1,487 @@
+package org.pawele;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Keeps processes in direct buffers, one buffer per field (struct of arrays), so retained heap does not grow with
+ * capacity. A slot of every buffer describes one process, free slots are reused through a free list.
+ * - only numeric ids are supported, id index is open addressing table in direct buffers too
+ * - {@link Process} instances are created only when they are read (find, iteration, eviction...), so they are equal
+ *   to added ones, but not the same, their OS process is looked up by pid and start time only when it is killed, see
+ *   {@link StoredProcessHandle}
+ * - slots are linked into FIFO list per priority like in {@link PartitionedProcessStore}, all operations take one
+ *   monitor
+ * - buffers are allocated for initial capacity, capacity can be lowered and raised back up to it
+ */
+class OffHeapProcessStore implements ProcessStore {
+
+    private static final int NONE = -1;
+    private static final long NO_PID = -1;
+
+    private final int allocated;
+    private int capacity;
+    private final LongBuffer ids;
+    private final LongBuffer sequences;
+    private final LongBuffer created;
+    private final LongBuffer pids;
+    // start of OS process in epoch milliseconds
+    private final LongBuffer starts;
+    private final IntBuffer previous;
+    private final IntBuffer next;
+    private final ByteBuffer priorities;
+    private final Index index;
+    private final int[] heads = new int[Process.Priority.LEVELS];
+    private final int[] tails = new int[Process.Priority.LEVELS];
+    private final int[] counts = new int[Process.Priority.LEVELS];
+    private final PriorityBitmap occupied = new PriorityBitmap();
+    private int free;
+    private long sequence;
+    private volatile int size;
+    private volatile long modifications;
+
+    OffHeapProcessStore(int capacity) {
+        this.allocated = capacity;
+        this.capacity = capacity;
+        ids = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        sequences = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        created = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        pids = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        starts = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        previous = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        next = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        priorities = ByteBuffer.allocateDirect(capacity);
+        index = new Index(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            next.put(slot, slot + 1 < capacity ? slot + 1 : NONE);
+        }
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    @Override
+    public synchronized boolean offer(Process process) {
+        requireNumericId(process);
+        if (size >= capacity) {
+            return false;
+        }
+        link(process);
+        return true;
+    }
+
+    @Override
+    public synchronized List<Process> offerAll(List<Process> processes, ProcessManager.OverflowStrategy overflowStrategy,
+                                               List<Process> evicted) {
+        processes.forEach(OffHeapProcessStore::requireNumericId);
+        int available = Math.max(0, capacity - size);
+        List<Process> toAdd;
+        if (overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST) {
+            // when batch is bigger than capacity, its first processes would be replaced by the last ones
+            toAdd = processes.subList(Math.max(0, processes.size() - capacity), processes.size());
+            while (available < toAdd.size()) {
+                evicted.add(unlink(oldestSlot()));
+                available++;
+            }
+        } else if (overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT) {
+            toAdd = new ArrayList<>(processes.subList(0, Math.min(available, processes.size())));
+            for (Process process : processes.subList(toAdd.size(), processes.size())) {
+                var victim = oldestSlotLessImportantThan(process.getPriority());
+                if (victim != NONE) {
+                    evicted.add(unlink(victim));
+                    toAdd.add(process);
+                }
+            }
+        } else {
+            toAdd = processes.subList(0, Math.min(available, processes.size()));
+        }
+        for (Process process : toAdd) {
+            link(process);
+        }
+        return List.copyOf(toAdd);
+    }
+
+    @Override
+    public synchronized Optional<Process> find(Object key) {
+        if (!(key instanceof Long)) {
+            return Optional.empty();
+        }
+        var slot = index.get((Long) key);
+        return slot == NONE ? Optional.empty() : Optional.of(materialize(slot));
+    }
+
+    /**
+     * process is matched by id and sequence, so stale instance does not remove process which reused its id
+     */
+    @Override
+    public synchronized boolean remove(Process process) {
+        if (!process.hasNumericId()) {
+            return false;
+        }
+        var slot = index.get(process.getNumericId());
+        if (slot == NONE || sequences.get(slot) != process.sequence) {
+            return false;
+        }
+        unlink(slot);
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<Process> remove(Object key) {
+        if (!(key instanceof Long)) {
+            return Optional.empty();
+        }
+        var slot = index.get((Long) key);
+        return slot == NONE ? Optional.empty() : Optional.of(unlink(slot));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int count(Process.Priority priority) {
+        return counts[priority.getLevel()];
+    }
+
+    @Override
+    public long version() {
+        return modifications;
+    }
+
+    /**
+     * merges priority lists by sequence, process is created only when iterator gets to it
+     */
+    @Override
+    public Iterator<Process> iterator() {
+        return new MergingIterator();
+    }
+
+    @Override
+    public Iterator<Process> iterator(Process.Priority priority, Process[] after) {
+        var level = priority.getLevel();
+        return new Iterator<>() {
+            private Process next = following(level, after[0]);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Process next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = following(level, result);
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized void setCapacity(int capacity) {
+        if (capacity > allocated) {
+            throw new IllegalArgumentException("Off-heap storage cannot grow above initial capacity " + allocated);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized List<Process> removeSurplus(ProcessManager.OverflowStrategy overflowStrategy, int max) {
+        var removed = new ArrayList<Process>();
+        while (removed.size() < max && size > capacity) {
+            removed.add(unlink(overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST
+                    ? oldestSlot() : leastImportantSlot()));
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized Optional<Process> oldest() {
+        var slot = oldestSlot();
+        return slot == NONE ? Optional.empty() : Optional.of(materialize(slot));
+    }
+
+    @Override
+    public synchronized Optional<Process> oldest(Process.Priority priority) {
+        var slot = heads[priority.getLevel()];
+        return slot == NONE ? Optional.empty() : Optional.of(materialize(slot));
+    }
+
+    @Override
+    public synchronized Optional<Process> oldestLessImportantThan(Process.Priority priority) {
+        var slot = oldestSlotLessImportantThan(priority);
+        return slot == NONE ? Optional.empty() : Optional.of(materialize(slot));
+    }
+
+    @Override
+    public synchronized List<Process> detachAll() {
+        var detached = new ArrayList<Process[]>();
+        for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+            detached.add(detachAll(Process.Priority.of(level)).toArray(new Process[0]));
+        }
+        return PartitionedProcessStore.merge(detached.toArray(new Process[0][]));
+    }
+
+    @Override
+    public synchronized List<Process> detachAll(Process.Priority priority) {
+        var level = priority.getLevel();
+        var detached = new ArrayList<Process>(counts[level]);
+        while (heads[level] != NONE) {
+            detached.add(unlink(heads[level]));
+        }
+        return detached;
+    }
+
+    @Override
+    public synchronized List<Process> snapshot() {
+        var result = new ArrayList<Process>(size);
+        iterator().forEachRemaining(result::add);
+        return result;
+    }
+
+    private static void requireNumericId(Process process) {
+        if (!process.hasNumericId()) {
+            throw new IllegalArgumentException("Off-heap storage supports only numeric ids");
+        }
+    }
+
+    private void link(Process process) {
+        var slot = free;
+        free = next.get(slot);
+        var priority = process.getPriority().getLevel();
+        process.stamp(sequence++);
+        ids.put(slot, process.getNumericId());
+        sequences.put(slot, process.sequence);
+        created.put(slot, process.createdNanos);
+        pids.put(slot, process.getHandle().map(ProcessHandle::pid).orElse(NO_PID));
+        starts.put(slot, process.getHandle()
+                .map(StoredProcessHandle::startOf)
+                .orElse(StoredProcessHandle.UNKNOWN_START));
+        priorities.put(slot, (byte) priority);
+        previous.put(slot, tails[priority]);
+        next.put(slot, NONE);
+        if (tails[priority] == NONE) {
+            heads[priority] = slot;
+        } else {
+            next.put(tails[priority], slot);
+        }
+        tails[priority] = slot;
+        index.put(process.getNumericId(), slot);
+        if (counts[priority]++ == 0) {
+            occupied.set(priority);
+        }
+        size++;
+        modifications++;
+    }
+
+    private Process unlink(int slot) {
+        var process = materialize(slot);
+        var priority = Byte.toUnsignedInt(priorities.get(slot));
+        var before = previous.get(slot);
+        var after = next.get(slot);
+        if (before == NONE) {
+            heads[priority] = after;
+        } else {
+            next.put(before, after);
+        }
+        if (after == NONE) {
+            tails[priority] = before;
+        } else {
+            previous.put(after, before);
+        }
+        index.remove(ids.get(slot));
+        // iterators standing on removed slot notice that its sequence changed
+        sequences.put(slot, NONE);
+        next.put(slot, free);
+        free = slot;
+        if (--counts[priority] == 0) {
+            occupied.clear(priority);
+        }
+        size--;
+        modifications++;
+        return process;
+    }
+
+    private Process materialize(int slot) {
+        var process = new Process(Process.Priority.of(Byte.toUnsignedInt(priorities.get(slot))), ids.get(slot),
+                handle(pids.get(slot), starts.get(slot)));
+        process.sequence = sequences.get(slot);
+        process.createdNanos = created.get(slot);
+        return process;
+    }
+
+    private static ProcessHandle handle(long pid, long start) {
+        return pid == NO_PID ? null : new StoredProcessHandle(pid, start);
+    }
+
+    private int oldestSlot() {
+        int oldest = NONE;
+        for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+            var head = heads[level];
+            if (oldest == NONE || sequences.get(head) < sequences.get(oldest)) {
+                oldest = head;
+            }
+        }
+        return oldest;
+    }
+
+    private int oldestSlotLessImportantThan(Process.Priority priority) {
+        var level = occupied.lowestBelow(priority.getLevel());
+        return level == -1 ? NONE : heads[level];
+    }
+
+    private int leastImportantSlot() {
+        var level = occupied.next(0);
+        return level == -1 ? NONE : heads[level];
+    }
+
+    /**
+     * @param previous process returned last from the priority list, null for its head
+     * @return the next process of priority list, the one with sequence greater than sequence of previous
+     */
+    private synchronized Process following(int priority, Process previous) {
+        int slot;
+        if (previous == null) {
+            slot = heads[priority];
+        } else {
+            slot = index.get(previous.getNumericId());
+            if (slot != NONE && sequences.get(slot) == previous.sequence) {
+                slot = next.get(slot);
+            } else {
+                // previous was removed in the meantime, the list is walked from the beginning
+                slot = heads[priority];
+                while (slot != NONE && sequences.get(slot) <= previous.sequence) {
+                    slot = next.get(slot);
+                }
+            }
+        }
+        return slot == NONE ? null : materialize(slot);
+    }
+
+    /**
+     * merges lists of levels which have processes when iterator is created
+     */
+    private final class MergingIterator implements Iterator<Process> {
+        private final int[] levels;
+        private final Process[] heads;
+
+        private MergingIterator() {
+            synchronized (OffHeapProcessStore.this) {
+                var levels = new int[Process.Priority.LEVELS];
+                int count = 0;
+                for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+                    levels[count++] = level;
+                }
+                this.levels = Arrays.copyOf(levels, count);
+                this.heads = new Process[count];
+                for (int i = 0; i < count; i++) {
+                    heads[i] = following(this.levels[i], null);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Process head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Process next() {
+            int oldest = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (oldest == -1 || heads[i].sequence < heads[oldest].sequence)) {
+                    oldest = i;
+                }
+            }
+            if (oldest == -1) {
+                throw new NoSuchElementException();
+            }
+            var result = heads[oldest];
+            heads[oldest] = following(levels[oldest], result);
+            return result;
+        }
+    }
+
+    /**
+     * open addressing id to slot table with linear probing, removal shifts following entries back, so there are
+     * no tombstones
+     */
+    private static final class Index {
+        private final LongBuffer keys;
+        private final IntBuffer values;
+        private final int mask;
+
+        private Index(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+            keys = ByteBuffer.allocateDirect(size * Long.BYTES).asLongBuffer();
+            values = ByteBuffer.allocateDirect(size * Integer.BYTES).asIntBuffer();
+            for (int i = 0; i < size; i++) {
+                values.put(i, NONE);
+            }
+            mask = size - 1;
+        }
+
+        private int get(long key) {
+            for (int i = hash(key); ; i = (i + 1) & mask) {
+                var value = values.get(i);
+                if (value == NONE || keys.get(i) == key) {
+                    return value;
+                }
+            }
+        }
+
+        private void put(long key, int value) {
+            int i = hash(key);
+            while (values.get(i) != NONE && keys.get(i) != key) {
+                i = (i + 1) & mask;
+            }
+            keys.put(i, key);
+            values.put(i, value);
+        }
+
+        private void remove(long key) {
+            int i = hash(key);
+            while (values.get(i) != NONE && keys.get(i) != key) {
+                i = (i + 1) & mask;
+            }
+            if (values.get(i) == NONE) {
+                return;
+            }
+            // entries after the removed one are moved back unless they are already at or after their home
+            for (int j = (i + 1) & mask; values.get(j) != NONE; j = (j + 1) & mask) {
+                int home = hash(keys.get(j));
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys.put(i, keys.get(j));
+                    values.put(i, values.get(j));
+                    i = j;
+                }
+            }
+            values.put(i, NONE);
+        }
+
+        private int hash(long key) {
+            var mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,681 @@
+package org.pawele;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Storage which keeps one FIFO partition per priority level, so the oldest process with given priority
+ * is always at the head of its partition and can be found without scanning whole storage.
+ * - partitions are created when their level is used first, occupied levels are marked in a bitmap, so the least
+ *   important process is found without checking all 256 levels
+ * - capacity is shared by all partitions (and may be shared with other storages), it is reserved with CAS
+ *   before process is linked
+ * - every partition is guarded by its own monitor, so adding LOW process does not wait for HIGH one
+ * - global insertion order is restored from sequence assigned when process is linked, the oldest process is found
+ *   exactly even when adds race with the search
+ * - processes are indexed by id and kept in doubly linked nodes, so removal does not walk the partition
+ * - whole partition can be detached in one step, detached nodes are recognised by epoch of the partition
+ * - partitions can be iterated without monitors, removed nodes keep link to the next one for iterators standing
+ *   on them
+ * - batch is added with monitors of all partitions held, so victims are chosen in one pass and batch is published
+ *   at once, partitions cannot be created meanwhile
+ */
+class PartitionedProcessStore implements ProcessStore {
+
+    // searches of the oldest process racing with adds before heads are compared with all monitors held
+    static final int OLDEST_ATTEMPTS = 3;
+
+    private final Capacity capacity;
+    private final AtomicLong sequence;
+    // created lazily under monitor of the array, partition has only final fields and fields with default values
+    // when it is created, so it may be read without the monitor
+    private final Partition[] partitions = new Partition[Process.Priority.LEVELS];
+    private final PriorityBitmap occupied = new PriorityBitmap();
+    private final ConcurrentHashMap<Object, Node> index = new ConcurrentHashMap<>();
+
+    PartitionedProcessStore(int capacity) {
+        this(new Capacity(capacity), new AtomicLong());
+    }
+
+    /**
+     * @param sequence has to be shared when processes of several storages are merged into one order
+     */
+    PartitionedProcessStore(Capacity capacity, AtomicLong sequence) {
+        this.capacity = capacity;
+        this.sequence = sequence;
+    }
+
+    @Override
+    public boolean offer(Process process) {
+        if (!capacity.reserve()) {
+            return false;
+        }
+        link(process);
+        return true;
+    }
+
+    /**
+     * links process into capacity which was already reserved for it
+     */
+    void link(Process process) {
+        var node = new Node(process);
+        var partition = partitionOf(process.getPriority());
+        synchronized (partition) {
+            partition.linkLast(node, sequence);
+            // indexed under the same lock, so it cannot be unlinked before it is indexed
+            index.put(process.key(), node);
+        }
+    }
+
+    /**
+     * capacity is reserved up front, processes which do not fit take slots of victims, which are unlinked
+     * but their capacity is kept for the batch
+     */
+    @Override
+    public List<Process> offerAll(List<Process> processes, ProcessManager.OverflowStrategy overflowStrategy,
+                                  List<Process> evicted) {
+        for (Process process : processes) {
+            partitionOf(process.getPriority());
+        }
+        int reserved = capacity.reserve(processes.size());
+        return lockAll(() -> {
+            List<Process> toAdd;
+            if (overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST) {
+                int replaced = 0;
+                Node victim;
+                while (reserved + replaced < processes.size() && (victim = oldestNode()) != null) {
+                    evict(victim, evicted);
+                    replaced++;
+                }
+                // when batch is bigger than capacity, its first processes would be replaced by the last ones
+                toAdd = processes.subList(processes.size() - reserved - replaced, processes.size());
+            } else if (overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT) {
+                toAdd = new ArrayList<>(processes.subList(0, reserved));
+                for (Process process : processes.subList(reserved, processes.size())) {
+                    var victim = oldestNodeLessImportantThan(process.getPriority());
+                    if (victim != null) {
+                        evict(victim, evicted);
+                        toAdd.add(process);
+                    }
+                }
+            } else {
+                toAdd = processes.subList(0, reserved);
+            }
+            for (Process process : toAdd) {
+                var node = new Node(process);
+                partitionOf(process.getPriority()).linkLast(node, sequence);
+                index.put(process.key(), node);
+            }
+            return List.copyOf(toAdd);
+        });
+    }
+
+    @Override
+    public Optional<Process> find(Object key) {
+        var node = index.get(key);
+        return node == null ? Optional.empty() : Optional.of(node.process);
+    }
+
+    @Override
+    public boolean remove(Process process) {
+        var node = index.get(process.key());
+        if (node == null || node.process != process) {
+            return false;
+        }
+        return remove(node);
+    }
+
+    @Override
+    public Optional<Process> remove(Object key) {
+        var node = index.get(key);
+        if (node == null || !remove(node)) {
+            return Optional.empty();
+        }
+        return Optional.of(node.process);
+    }
+
+    /**
+     * capacity of removed process is not released, it is handed over to the caller
+     */
+    boolean removeKeepingCapacity(Process process) {
+        var node = index.get(process.key());
+        return node != null && node.process == process && unlink(node);
+    }
+
+    private boolean remove(Node node) {
+        if (!unlink(node)) {
+            return false;
+        }
+        capacity.release(1);
+        return true;
+    }
+
+    private boolean unlink(Node node) {
+        var partition = partitions[node.process.getPriority().getLevel()];
+        synchronized (partition) {
+            if (!partition.unlink(node)) {
+                // already removed by other thread
+                return false;
+            }
+            index.remove(node.process.key(), node);
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Partition partition : partitions) {
+            if (partition != null) {
+                size += partition.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int count(Process.Priority priority) {
+        var partition = partitions[priority.getLevel()];
+        return partition == null ? 0 : partition.size;
+    }
+
+    /**
+     * sum of modifications of all partitions, every partition counts them under its monitor
+     */
+    @Override
+    public long version() {
+        long version = 0;
+        for (Partition partition : partitions) {
+            if (partition != null) {
+                version += partition.modifications;
+            }
+        }
+        return version;
+    }
+
+    /**
+     * merges partitions which are not empty when iterator is created
+     */
+    @Override
+    public Iterator<Process> iterator() {
+        var cursors = new ArrayList<Node>();
+        for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+            var first = partitions[level].first;
+            if (first != null) {
+                cursors.add(first);
+            }
+        }
+        return new MergingIterator(cursors.toArray(new Node[0]));
+    }
+
+    /**
+     * continues from the node of given process found in index, partition is walked only when it was removed
+     */
+    @Override
+    public Iterator<Process> iterator(Process.Priority priority, Process[] lanes) {
+        var partition = partitions[priority.getLevel()];
+        if (partition == null) {
+            return Collections.emptyIterator();
+        }
+        var after = lanes[0];
+        Node cursor;
+        if (after == null) {
+            cursor = partition.first;
+        } else {
+            var node = index.get(after.key());
+            if (node != null && node.process == after && node.epoch != -1) {
+                cursor = node.next;
+            } else {
+                cursor = partition.first;
+                while (cursor != null && cursor.process.sequence <= after.sequence) {
+                    cursor = cursor.next;
+                }
+            }
+        }
+        return new MergingIterator(new Node[]{cursor});
+    }
+
+    @Override
+    public int capacity() {
+        return capacity.limit();
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity.limit(capacity);
+    }
+
+    /**
+     * victims are unlinked with monitors of all partitions held, so adds wait at most for max unlinks
+     */
+    @Override
+    public List<Process> removeSurplus(ProcessManager.OverflowStrategy overflowStrategy, int max) {
+        var removed = lockAll(() -> {
+            var victims = new ArrayList<Process>();
+            int surplus = Math.min(capacity.surplus(), max);
+            Node victim;
+            while (victims.size() < surplus && (victim = overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST
+                    ? oldestNode() : leastImportantNode()) != null) {
+                evict(victim, victims);
+            }
+            return victims;
+        });
+        capacity.release(removed.size());
+        return removed;
+    }
+
+    /**
+     * exact although heads are read under their monitors one by one: processes stamped before the search started
+     * are linked and visible to it, so the found head is the oldest one unless it was stamped during the search,
+     * then the search is repeated, and when adds keep racing with it heads are compared with all monitors held
+     */
+    @Override
+    public Optional<Process> oldest() {
+        for (int attempt = 0; attempt < OLDEST_ATTEMPTS; attempt++) {
+            var started = sequence.get();
+            var oldest = oldestHead();
+            if (oldest == null || oldest.sequence < started) {
+                return Optional.ofNullable(oldest);
+            }
+        }
+        return Optional.ofNullable(lockAll(() -> {
+            var oldest = oldestNode();
+            return oldest == null ? null : oldest.process;
+        }));
+    }
+
+    /**
+     * the oldest of heads read one by one, it can miss processes stamped during the search
+     */
+    Process oldestHead() {
+        Process oldest = null;
+        for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+            var head = partitions[level].head();
+            if (head != null && (oldest == null || head.sequence < oldest.sequence)) {
+                oldest = head;
+            }
+        }
+        return oldest;
+    }
+
+    @Override
+    public Optional<Process> oldest(Process.Priority priority) {
+        return Optional.ofNullable(head(priority));
+    }
+
+    /**
+     * @return the oldest process with given priority or null
+     */
+    Process head(Process.Priority priority) {
+        var partition = partitions[priority.getLevel()];
+        return partition == null ? null : partition.head();
+    }
+
+    /**
+     * @return the least important level with processes which is not lower than given one, -1 when there is none
+     */
+    int lowestLevel(int from) {
+        return occupied.next(from);
+    }
+
+    /**
+     * checks only heads of occupied levels below the priority, starting from the least important one
+     */
+    @Override
+    public Optional<Process> oldestLessImportantThan(Process.Priority priority) {
+        var below = priority.getLevel();
+        for (int level = occupied.next(0); level != -1 && level < below; level = occupied.next(level + 1)) {
+            var head = partitions[level].head();
+            if (head != null) {
+                return Optional.of(head);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * detaches all partitions at once, monitors are held only for swapping heads
+     */
+    @Override
+    public List<Process> detachAll() {
+        var detached = lockAll(() -> {
+            var heads = new ArrayList<Node>();
+            for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+                heads.add(partitions[level].detach());
+            }
+            return heads;
+        });
+        var removed = new Process[detached.size()][];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = release(detached.get(i));
+        }
+        return merge(removed);
+    }
+
+    @Override
+    public List<Process> detachAll(Process.Priority priority) {
+        Node detached;
+        var partition = partitions[priority.getLevel()];
+        if (partition == null) {
+            return List.of();
+        }
+        synchronized (partition) {
+            detached = partition.detach();
+        }
+        return List.of(release(detached));
+    }
+
+    /**
+     * every partition is copied atomically and then partitions are merged by sequence
+     */
+    @Override
+    public List<Process> snapshot() {
+        var copies = new ArrayList<Process[]>();
+        for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+            copies.add(partitions[level].toArray());
+        }
+        return merge(copies.toArray(new Process[0][]));
+    }
+
+    /**
+     * takes monitors of all existing partitions in fixed order, so action is atomic for concurrent adds and
+     * removals, monitor of the array keeps new partitions from being created meanwhile
+     */
+    private <T> T lockAll(Supplier<T> action) {
+        synchronized (partitions) {
+            return lockAll(0, action);
+        }
+    }
+
+    private <T> T lockAll(int level, Supplier<T> action) {
+        while (level < partitions.length && partitions[level] == null) {
+            level++;
+        }
+        if (level == partitions.length) {
+            return action.get();
+        }
+        synchronized (partitions[level]) {
+            return lockAll(level + 1, action);
+        }
+    }
+
+    /**
+     * has to be called with all monitors held
+     */
+    private Node oldestNode() {
+        Node oldest = null;
+        for (int level = occupied.next(0); level != -1; level = occupied.next(level + 1)) {
+            var first = partitions[level].first;
+            if (oldest == null || first.process.sequence < oldest.process.sequence) {
+                oldest = first;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * has to be called with all monitors held, bitmap is exact then
+     */
+    private Node oldestNodeLessImportantThan(Process.Priority priority) {
+        var level = occupied.lowestBelow(priority.getLevel());
+        return level == -1 ? null : partitions[level].first;
+    }
+
+    /**
+     * has to be called with all monitors held
+     */
+    private Node leastImportantNode() {
+        var level = occupied.next(0);
+        return level == -1 ? null : partitions[level].first;
+    }
+
+    /**
+     * unlinks victim keeping its capacity reserved, has to be called with monitor of its partition held
+     */
+    private void evict(Node victim, List<Process> evicted) {
+        partitions[victim.process.getPriority().getLevel()].unlink(victim);
+        index.remove(victim.process.key(), victim);
+        evicted.add(victim.process);
+    }
+
+    /**
+     * cleans up index and capacity after nodes were detached, detached chain is not touched by anyone else
+     */
+    private Process[] release(Node first) {
+        int count = 0;
+        for (var node = first; node != null; node = node.next) {
+            count++;
+        }
+        var result = new Process[count];
+        int i = 0;
+        for (var node = first; node != null; node = node.next) {
+            index.remove(node.process.key(), node);
+            result[i++] = node.process;
+        }
+        capacity.release(count);
+        return result;
+    }
+
+    /**
+     * merges copies ordered by sequence into one list ordered by sequence, copies are kept in a binary heap by their
+     * next process, so merging costs O(n log copies)
+     */
+    static List<Process> merge(Process[][] copies) {
+        int total = 0;
+        var heap = new int[copies.length];
+        int size = 0;
+        for (int i = 0; i < copies.length; i++) {
+            total += copies[i].length;
+            if (copies[i].length > 0) {
+                heap[size++] = i;
+            }
+        }
+        var positions = new int[copies.length];
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, copies, positions);
+        }
+        var result = new ArrayList<Process>(total);
+        while (size > 0) {
+            var next = heap[0];
+            result.add(copies[next][positions[next]++]);
+            if (positions[next] == copies[next].length) {
+                heap[0] = heap[--size];
+            }
+            siftDown(heap, size, 0, copies, positions);
+        }
+        return result;
+    }
+
+    private static void siftDown(int[] heap, int size, int i, Process[][] copies, int[] positions) {
+        while (true) {
+            int smallest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (sequence(heap[child], copies, positions) < sequence(heap[smallest], copies, positions)) {
+                    smallest = child;
+                }
+            }
+            if (smallest == i) {
+                return;
+            }
+            var swapped = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = swapped;
+            i = smallest;
+        }
+    }
+
+    private static long sequence(int copy, Process[][] copies, int[] positions) {
+        return copies[copy][positions[copy]].sequence;
+    }
+
+    private Partition partitionOf(Process.Priority priority) {
+        var partition = partitions[priority.getLevel()];
+        return partition != null ? partition : createPartition(priority.getLevel());
+    }
+
+    private Partition createPartition(int level) {
+        synchronized (partitions) {
+            if (partitions[level] == null) {
+                partitions[level] = new Partition(level, occupied);
+            }
+            return partitions[level];
+        }
+    }
+
+    /**
+     * merges partitions by sequence, nodes removed before iterator reaches them are skipped
+     */
+    private static final class MergingIterator implements Iterator<Process> {
+        private final Node[] cursors;
+        private Process next;
+
+        private MergingIterator(Node[] cursors) {
+            this.cursors = cursors;
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Process next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            var result = next;
+            next = advance();
+            return result;
+        }
+
+        private Process advance() {
+            int oldest = -1;
+            for (int i = 0; i < cursors.length; i++) {
+                while (cursors[i] != null && cursors[i].epoch == -1) {
+                    cursors[i] = cursors[i].next;
+                }
+                if (cursors[i] != null
+                        && (oldest == -1 || cursors[i].process.sequence < cursors[oldest].process.sequence)) {
+                    oldest = i;
+                }
+            }
+            if (oldest == -1) {
+                return null;
+            }
+            var node = cursors[oldest];
+            cursors[oldest] = node.next;
+            return node.process;
+        }
+    }
+
+    private static final class Node {
+        private final Process process;
+        private Node prev;
+        private volatile Node next;
+        // epoch of the partition node is linked to, -1 when node is not linked
+        private volatile long epoch = -1;
+
+        private Node(Process process) {
+            this.process = process;
+        }
+    }
+
+    /**
+     * doubly linked list of nodes, linking and unlinking have to be done with partition monitor held
+     */
+    private static final class Partition {
+        private final int level;
+        private final PriorityBitmap occupied;
+        private volatile Node first;
+        private Node last;
+        // written under monitor, read without it by counters
+        private volatile int size;
+        private volatile long modifications;
+        private long epoch;
+
+        private Partition(int level, PriorityBitmap occupied) {
+            this.level = level;
+            this.occupied = occupied;
+        }
+
+        synchronized Process head() {
+            return first == null ? null : first.process;
+        }
+
+        synchronized Process[] toArray() {
+            var result = new Process[size];
+            int i = 0;
+            for (var node = first; node != null; node = node.next) {
+                result[i++] = node.process;
+            }
+            return result;
+        }
+
+        /**
+         * sequence is taken under partition lock, so every partition stays ordered by it, and after the level is
+         * marked occupied, so search which saw the sequence taken sees the level too
+         */
+        private void linkLast(Node node, AtomicLong sequence) {
+            if (size == 0) {
+                occupied.set(level);
+            }
+            node.process.stamp(sequence.getAndIncrement());
+            node.prev = last;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            node.epoch = epoch;
+            size++;
+            modifications++;
+        }
+
+        private boolean unlink(Node node) {
+            if (node.epoch != epoch) {
+                return false;
+            }
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            // next is kept, so iterator standing on that node can continue
+            node.prev = null;
+            node.epoch = -1;
+            if (--size == 0) {
+                occupied.clear(level);
+            }
+            modifications++;
+            return true;
+        }
+
+        /**
+         * nodes linked before are no longer recognised as linked, as they belong to previous epoch
+         */
+        private Node detach() {
+            var detached = first;
+            first = null;
+            last = null;
+            modifications += size;
+            size = 0;
+            occupied.clear(level);
+            epoch++;
+            return detached;
+        }
+    }
+}
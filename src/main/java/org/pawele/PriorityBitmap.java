@@ -0,0 +1,59 @@
+package org.pawele;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One bit per priority level which has processes (or other property of levels), so the least important non empty
+ * level (below some level) is found with a few bit operations instead of checking all 256 levels.
+ * - bits are set and cleared atomically, storage flips bit of a level under the lock of that level
+ * - without the locks of levels it is only a hint, level found here may already be empty
+ */
+class PriorityBitmap {
+
+    private static final int WORDS = Process.Priority.LEVELS / Long.SIZE;
+
+    private final AtomicLongArray words = new AtomicLongArray(WORDS);
+
+    void set(int level) {
+        var bit = 1L << level;
+        words.getAndAccumulate(level >>> 6, bit, (word, mask) -> word | mask);
+    }
+
+    void clear(int level) {
+        var bit = 1L << level;
+        words.getAndAccumulate(level >>> 6, bit, (word, mask) -> word & ~mask);
+    }
+
+    boolean isSet(int level) {
+        return (words.get(level >>> 6) & (1L << level)) != 0;
+    }
+
+    /**
+     * @return the least important level with processes which is not lower than given one, -1 when there is none
+     */
+    int next(int from) {
+        if (from >= Process.Priority.LEVELS) {
+            return -1;
+        }
+        var index = from >>> 6;
+        // shifting by the level takes only its lowest 6 bits, so it masks out lower levels of the word
+        var word = words.get(index) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == WORDS) {
+                return -1;
+            }
+            word = words.get(index);
+        }
+    }
+
+    /**
+     * @return the least important level with processes below given level, -1 when there is none
+     */
+    int lowestBelow(int level) {
+        var lowest = next(0);
+        return lowest < level ? lowest : -1;
+    }
+}
@@ -0,0 +1,99 @@
+package org.pawele;
+
+/**
+ * Slots reserved for priorities and caps of priorities, checked before process is offered to the storage.
+ * - reserved slots of a priority can be taken only by processes of that priority, other priorities see capacity
+ *   lowered by reserved slots which are not used yet
+ * - priority never has more processes than its quota
+ * - admission is decided from counters in O(1) under one short monitor, so it is exact also under concurrent adds
+ * - levels with processes above their reserved slots are marked in a bitmap, so victims are found without checking
+ *   all 256 levels
+ */
+class PriorityQuotas {
+
+    private final int[] reserved;
+    private final int[] quotas;
+    private final int[] counts;
+    private final PriorityBitmap aboveReserved = new PriorityBitmap();
+    private int capacity;
+    private int total;
+    // sum of reserved slots which are not used yet
+    private int unused;
+
+    /**
+     * @param reserved slots reserved for every priority, indexed by level
+     * @param quotas   maximal number of processes of every priority, indexed by level
+     */
+    PriorityQuotas(int capacity, int[] reserved, int[] quotas) {
+        this.reserved = reserved.clone();
+        this.quotas = quotas.clone();
+        this.counts = new int[reserved.length];
+        for (int slots : reserved) {
+            unused += slots;
+        }
+        setCapacity(capacity);
+    }
+
+    /**
+     * @return false when process of given priority does not fit, nothing is counted then
+     */
+    synchronized boolean acquire(Process.Priority priority) {
+        var i = priority.getLevel();
+        if (counts[i] >= quotas[i]) {
+            return false;
+        }
+        if (counts[i] < reserved[i]) {
+            unused--;
+        } else if (total + unused >= capacity) {
+            return false;
+        }
+        if (counts[i]++ == reserved[i]) {
+            aboveReserved.set(i);
+        }
+        total++;
+        return true;
+    }
+
+    synchronized void release(Process.Priority priority) {
+        var i = priority.getLevel();
+        if (counts[i]-- == reserved[i] + 1) {
+            aboveReserved.clear(i);
+        }
+        total--;
+        if (counts[i] < reserved[i]) {
+            unused++;
+        }
+    }
+
+    /**
+     * @return true when {@link #acquire} would count process of given priority now
+     */
+    synchronized boolean fits(Process.Priority priority) {
+        var i = priority.getLevel();
+        return counts[i] < quotas[i] && (counts[i] < reserved[i] || total + unused < capacity);
+    }
+
+    synchronized boolean isFull(Process.Priority priority) {
+        return counts[priority.getLevel()] >= quotas[priority.getLevel()];
+    }
+
+    /**
+     * @return the least important level not lower than given one whose process frees slot which other priorities
+     * can use when it is removed, -1 when there is none; read without the monitor, so it is only a hint, like any
+     * answer once the monitor is released
+     */
+    int nextAboveReserved(int from) {
+        return aboveReserved.next(from);
+    }
+
+    synchronized void setCapacity(int capacity) {
+        int reservedSlots = 0;
+        for (int slots : reserved) {
+            reservedSlots += slots;
+        }
+        if (reservedSlots > capacity) {
+            throw new IllegalArgumentException("Reserved slots must not exceed capacity");
+        }
+        this.capacity = capacity;
+    }
+}
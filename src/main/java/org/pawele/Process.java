@@ -1,32 +1,199 @@
 package org.pawele;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 public class Process {
-    private final String id;
+    private final long numericId;
+    private final boolean numeric;
+    // for numeric ids it is created lazily, racing threads produce equal Strings, so it is safe
+    private String id;
     private final Priority priority;
+    // OS process backing that process, if any
+    private final ProcessHandle handle;
+    // assigned by storage when process is added, used to restore insertion order between partitions
+    long sequence;
+    // System.nanoTime() when sequence was assigned
+    long createdNanos;
+    // deadline of the process when it was added with time to live, written under lock of the timing wheel
+    volatile TimingWheel.Timer timer;
+    // whether add of the process was written to journal, changed under lock of the journal
+    volatile byte journalState;
 
     public Process(Priority priority, String id) {
+        this(priority, id, null);
+    }
+
+    public Process(Priority priority, long id) {
+        this(priority, id, null);
+    }
+
+    public Process(Priority priority, String id, ProcessHandle handle) {
         this.id = id;
+        this.numericId = 0;
+        this.numeric = false;
+        this.priority = priority;
+        this.handle = handle;
+    }
+
+    public Process(Priority priority, long id, ProcessHandle handle) {
+        this.numericId = id;
+        this.numeric = true;
         this.priority = priority;
+        this.handle = handle;
     }
 
     public String getId() {
+        var id = this.id;
+        if (id == null && numeric) {
+            id = Long.toString(numericId);
+            this.id = id;
+        }
         return id;
     }
 
+    public boolean hasNumericId() {
+        return numeric;
+    }
+
+    public long getNumericId() {
+        if (!numeric) {
+            throw new IllegalStateException("Process has no numeric id");
+        }
+        return numericId;
+    }
+
+    /**
+     * key used for indexing, numeric ids are not converted to String
+     */
+    Object key() {
+        return numeric ? (Object) numericId : id;
+    }
+
     public Priority getPriority() {
         return priority;
     }
 
-    void kill(){
-        //TODO: implement me
+    public Optional<ProcessHandle> getHandle() {
+        return Optional.ofNullable(handle);
+    }
+
+    /**
+     * current descendants of the OS process (children, their children and so on), they are killed together with
+     * the process when it is deleted or evicted
+     */
+    public Stream<ProcessHandle> getDescendants() {
+        return handle != null ? handle.descendants() : Stream.empty();
+    }
+
+    /**
+     * position of the process in order of adding, taken from one counter of the manager when the process enters
+     * storage, so process with lower sequence is older and that is the one evicted first (sharded storage may evict
+     * a process newer than ones added concurrently with the search). Restored processes get new sequences in their
+     * original order.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * time the process has spent in the manager, measured with {@link System#nanoTime()}, restored processes count
+     * it from restore
+     */
+    public Duration getAge() {
+        return Duration.ofNanos(System.nanoTime() - createdNanos);
+    }
+
+    /**
+     * approximate wall clock time the process was added at, derived from {@link #getAge()}
+     */
+    public Instant getCreatedAt() {
+        return Instant.now().minus(getAge());
     }
-    public enum Priority{
-        LOW,
-        MEDIUM,
-        HIGH;
+
+    /**
+     * called by storage with its monitor held or slot claimed, so order of stamps is order of adding
+     */
+    void stamp(long sequence) {
+        this.sequence = sequence;
+        this.createdNanos = System.nanoTime();
+    }
+
+    /**
+     * processes are equal when they have the same id, storages may hand out different instances of one process
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Process)) {
+            return false;
+        }
+        var other = (Process) o;
+        return numeric == other.numeric && (numeric ? numericId == other.numericId : id.equals(other.id));
+    }
+
+    @Override
+    public int hashCode() {
+        return numeric ? Long.hashCode(numericId) : id.hashCode();
+    }
+
+    /**
+     * Numeric level from 0 (the least important) to 255 (the most important), instances are cached, so priorities
+     * may be compared with ==. LOW, MEDIUM and HIGH are aliases of levels 0, 128 and 255.
+     */
+    public static final class Priority implements Comparable<Priority> {
+        public static final int LEVELS = 256;
+        private static final Priority[] CACHE = new Priority[LEVELS];
+        static {
+            for (int level = 0; level < LEVELS; level++) {
+                CACHE[level] = new Priority(level);
+            }
+        }
+        public static final Priority LOW = CACHE[0];
+        public static final Priority MEDIUM = CACHE[128];
+        public static final Priority HIGH = CACHE[255];
+        private static final Priority[] NAMED = {LOW, MEDIUM, HIGH};
+
+        private final int level;
+
+        private Priority(int level) {
+            this.level = level;
+        }
+
+        public static Priority of(int level) {
+            if(level < 0 || level >= LEVELS){
+                throw new IllegalArgumentException("Priority level must be between 0 and 255");
+            }
+            return CACHE[level];
+        }
+
+        /**
+         * named priorities LOW, MEDIUM and HIGH, from the least important
+         */
+        public static Priority[] values() {
+            return NAMED.clone();
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
         public boolean isMoreImportantThan(Priority other){
-            return ordinal() > other.ordinal();
+            return level > other.level;
         }
 
+        @Override
+        public int compareTo(Priority other) {
+            return Integer.compare(level, other.level);
+        }
+
+        @Override
+        public String toString() {
+            return this == LOW ? "LOW" : this == MEDIUM ? "MEDIUM" : this == HIGH ? "HIGH" : String.valueOf(level);
+        }
     }
 }
@@ -0,0 +1,76 @@
+package org.pawele;
+
+import java.util.Optional;
+
+/**
+ * Change of processes read from {@link ChangeSubscription}
+ */
+public class ProcessChange {
+    private final Type type;
+    private final long position;
+    private final Process process;
+    private final ProcessManager.OverflowStrategy overflowStrategy;
+    private final long missed;
+
+    ProcessChange(Type type, long position, Process process, ProcessManager.OverflowStrategy overflowStrategy,
+                  long missed) {
+        this.type = type;
+        this.position = position;
+        this.process = process;
+        this.overflowStrategy = overflowStrategy;
+        this.missed = missed;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * position of the change in the feed, positions of consecutive changes differ by one unless some were missed
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * null for {@link Type#MISSED}
+     */
+    public Process getProcess() {
+        return process;
+    }
+
+    /**
+     * strategy which evicted the process, empty for other changes than {@link Type#EVICTED}
+     */
+    public Optional<ProcessManager.OverflowStrategy> getOverflowStrategy() {
+        return Optional.ofNullable(overflowStrategy);
+    }
+
+    /**
+     * number of changes replaced by {@link Type#MISSED}, 0 for other changes
+     */
+    public long getMissed() {
+        return missed;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.MISSED ? type + "(" + missed + ")" : type + "(" + process.getId() + ")";
+    }
+
+    public enum Type {
+        ADDED,
+        EVICTED,
+        DELETED,
+        EXPIRED,
+        /**
+         * OS process of removed process exited
+         */
+        KILLED,
+        /**
+         * subscriber fell behind by more than the feed keeps, changes it did not read were overwritten,
+         * see {@link ChangeSubscription.SlowConsumerPolicy#COALESCE}
+         */
+        MISSED
+    }
+}
@@ -0,0 +1,203 @@
+package org.pawele;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Kills OS processes off the caller's thread: first it asks process to terminate, and when it is still alive
+ * after grace period it is killed forcibly.
+ * - process is killed as a group with all its descendants, they are collected before any of them is signalled,
+ *   so children reparented after their parent exited are not missed
+ * - no thread waits for process exit, it is observed with {@link ProcessHandle#onExit()}
+ * - groups of a batch are signalled by at most parallelism tasks and share one deadline, so the batch takes about
+ *   as long as the slowest group
+ * - batch of more than one group reads the process table once, instead of once per group
+ */
+class ProcessKiller {
+
+    static final Duration DEFAULT_GRACE_PERIOD = Duration.ofSeconds(5);
+
+    private static volatile ScheduledExecutorService defaultExecutor;
+
+    private final ScheduledExecutorService executor;
+    private final Duration gracePeriod;
+    private final int parallelism;
+    private final Consumer<Process> onKilled;
+
+    /**
+     * @param parallelism the most tasks signalling groups of one batch
+     * @param onKilled    called when OS process of a process exited together with its descendants
+     */
+    ProcessKiller(ScheduledExecutorService executor, Duration gracePeriod, int parallelism,
+                  Consumer<Process> onKilled) {
+        this.executor = executor != null ? executor : defaultExecutor();
+        this.gracePeriod = gracePeriod != null ? gracePeriod : DEFAULT_GRACE_PERIOD;
+        this.parallelism = parallelism;
+        this.onKilled = onKilled;
+    }
+
+    ScheduledExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * @return future completed when OS process and its descendants exited, processes without OS process are
+     * completed at once
+     */
+    CompletableFuture<Void> kill(Process process) {
+        return killAll(List.of(process));
+    }
+
+    CompletableFuture<Void> killAll(List<Process> processes) {
+        var groups = new ArrayList<Group>();
+        for (Process process : processes) {
+            process.getHandle().ifPresent(handle -> groups.add(new Group(process, handle)));
+        }
+        if (groups.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var exits = new CompletableFuture<?>[groups.size()];
+        for (int i = 0; i < exits.length; i++) {
+            var group = groups.get(i);
+            exits[i] = group.exited;
+            group.exited.thenRun(() -> onKilled.accept(group.process));
+        }
+        var exited = CompletableFuture.allOf(exits);
+        executor.execute(() -> {
+            var children = groups.size() > 1 ? children() : null;
+            for (Group group : groups) {
+                group.collect(children);
+            }
+            var next = new AtomicInteger();
+            Runnable signal = () -> {
+                int i;
+                while ((i = next.getAndIncrement()) < groups.size()) {
+                    groups.get(i).terminate();
+                }
+            };
+            for (int i = 1; i < Math.min(parallelism, groups.size()); i++) {
+                executor.execute(signal);
+            }
+            signal.run();
+        });
+        var forced = executor.schedule(() -> {
+            for (Group group : groups) {
+                group.destroyForcibly();
+            }
+        }, gracePeriod.toNanos(), TimeUnit.NANOSECONDS);
+        exited.thenRun(() -> forced.cancel(false));
+        return exited;
+    }
+
+    /**
+     * children of every process by pid of its parent, read from one pass over the process table
+     */
+    private static Map<Long, List<ProcessHandle>> children() {
+        var children = new HashMap<Long, List<ProcessHandle>>();
+        ProcessHandle.allProcesses().forEach(handle -> handle.parent().ifPresent(parent ->
+                children.computeIfAbsent(parent.pid(), pid -> new ArrayList<>()).add(handle)));
+        return children;
+    }
+
+    /**
+     * OS process with its descendants, exited when all of them exited
+     */
+    private static final class Group {
+        private final Process process;
+        private final ProcessHandle root;
+        private final CompletableFuture<Void> exited = new CompletableFuture<>();
+        // descendants first, root last, written before the group is signalled
+        private volatile List<ProcessHandle> members;
+
+        private Group(Process process, ProcessHandle root) {
+            this.process = process;
+            this.root = root;
+        }
+
+        private void collect(Map<Long, List<ProcessHandle>> children) {
+            var members = new ArrayList<ProcessHandle>();
+            if (children == null) {
+                root.descendants().forEach(members::add);
+            } else {
+                addDescendants(root, children, members);
+            }
+            members.add(root);
+            this.members = members;
+            var exits = new CompletableFuture<?>[members.size()];
+            for (int i = 0; i < exits.length; i++) {
+                exits[i] = members.get(i).onExit();
+            }
+            CompletableFuture.allOf(exits).thenRun(() -> exited.complete(null));
+        }
+
+        private static void addDescendants(ProcessHandle parent, Map<Long, List<ProcessHandle>> children,
+                                           List<ProcessHandle> members) {
+            for (ProcessHandle child : children.getOrDefault(parent.pid(), List.of())) {
+                members.add(child);
+                addDescendants(child, children, members);
+            }
+        }
+
+        private void terminate() {
+            for (ProcessHandle member : members) {
+                // when graceful termination is not supported, there is nothing to wait for
+                if (!member.supportsNormalTermination() || !member.destroy()) {
+                    member.destroyForcibly();
+                }
+            }
+        }
+
+        /**
+         * descendants started after the group was collected are killed too, while their parent is still alive
+         */
+        private void destroyForcibly() {
+            var members = this.members;
+            if (members == null) {
+                root.descendants().forEach(ProcessHandle::destroyForcibly);
+                root.destroyForcibly();
+                return;
+            }
+            if (root.isAlive()) {
+                root.descendants().forEach(ProcessHandle::destroyForcibly);
+            }
+            for (ProcessHandle member : members) {
+                if (member.isAlive()) {
+                    member.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    private static ScheduledExecutorService defaultExecutor() {
+        var executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (ProcessKiller.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    var threads = new AtomicInteger();
+                    var pool = new ScheduledThreadPoolExecutor(
+                            Runtime.getRuntime().availableProcessors(),
+                            runnable -> {
+                                var thread = new Thread(runnable, "process-killer-" + threads.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                    );
+                    pool.setRemoveOnCancelPolicy(true);
+                    executor = pool;
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+}
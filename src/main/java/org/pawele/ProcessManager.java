@@ -1,139 +1,986 @@
 package org.pawele;
 
-import java.util.LinkedList;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.UUID;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * This is not most performant implementation, potentially if speed of adding/removal elements is very crucial
- * then we can sacrifice some space complexity and use hash-maps for storing processes and partition
- * them by group
- * - sorting is not implemented as it should be not responsibility of that class
+ * Processes are partitioned by priority (unless other storage is chosen), so looking for the oldest
+ * (less important) process checks only heads of partitions instead of scanning all processes
+ * - OS processes are killed asynchronously, methods return as soon as processes are removed from the manager
+ * - OS process is killed together with its descendants, as one group
+ * - processes are not sorted, ordered and filtered pages are read from per priority lists by {@link #query}
  */
-public class ProcessManager {
+public class ProcessManager implements AutoCloseable {
 
-    private final Queue<Process> processes;
+    static final Duration DEFAULT_EXPIRY_TICK = Duration.ofMillis(10);
+    // surplus processes removed with storage locked at once when capacity is lowered
+    static final int SHRINK_BATCH = 256;
+
+    private final ProcessStore processes;
     private final OverflowStrategy overflowStrategy;
+    private final IdGenerator idGenerator;
+    private final ProcessKiller killer;
+    private final ProcessManagerMetrics metrics = new ProcessManagerMetrics();
+    private final PriorityQuotas quotas;
+    private final AdmissionQueue waiters;
+    private final TimingWheel expiry;
+    private final Journal journal;
+    private final ChangeFeed changes;
+    // set only for managers of registry tenants
+    private final ProcessManagerRegistry registry;
+    private final Capacity tenantCapacity;
+    private volatile Snapshot snapshot;
+    private volatile boolean closed;
 
-    //TODO: with Lombok create Builder for that ProcessManager.builder().capacity(n).overflowStrategy(strategy).build()
-    // we may consider to do also this like: ProcessManager.builder().capacity(n).onOverflow().removeOldest().build()
     public ProcessManager(int capacity) {
         this(capacity, OverflowStrategy.SKIP);
     }
 
     public ProcessManager(int capacity, OverflowStrategy overflowStrategy) {
-        if(capacity < 1){
+        this(builder().capacity(capacity).overflowStrategy(overflowStrategy));
+    }
+
+    private ProcessManager(Builder builder) {
+        if(builder.capacity < 1){
             throw new IllegalArgumentException("Capacity must be positive");
         }
-        processes = new LinkedBlockingQueue<>(capacity);
-        this.overflowStrategy = overflowStrategy;
+        if(builder.storage == Storage.RING_BUFFER && builder.overflowStrategy != OverflowStrategy.REMOVE_OLDEST){
+            throw new IllegalArgumentException("Ring buffer storage supports only REMOVE_OLDEST overflow strategy");
+        }
+        if(builder.expiryTick == null || builder.expiryTick.isNegative() || builder.expiryTick.isZero()){
+            throw new IllegalArgumentException("Expiry tick must be positive");
+        }
+        if(builder.shards < 1){
+            throw new IllegalArgumentException("Number of shards must be positive");
+        }
+        if(builder.storage == Storage.RING_BUFFER && builder.shards > 1){
+            throw new IllegalArgumentException("Ring buffer storage cannot be sharded");
+        }
+        if(builder.storage == Storage.OFF_HEAP && builder.shards > 1){
+            throw new IllegalArgumentException("Off-heap storage cannot be sharded");
+        }
+        if(builder.storage == Storage.OFF_HEAP && builder.journal != null){
+            throw new IllegalArgumentException("Off-heap storage cannot be used with journal");
+        }
+        if(builder.storage == Storage.RING_BUFFER && (builder.reserved != null || builder.quotas != null)){
+            throw new IllegalArgumentException("Ring buffer storage cannot be used with priority quotas");
+        }
+        this.overflowStrategy = builder.overflowStrategy;
+        if(builder.changeFeedSize < 0){
+            throw new IllegalArgumentException("Change feed size must not be negative");
+        }
+        changes = builder.changeFeedSize > 0 ? new ChangeFeed(builder.changeFeedSize) : null;
+        if(builder.killParallelism < 1){
+            throw new IllegalArgumentException("Kill parallelism must be positive");
+        }
+        killer = new ProcessKiller(builder.killExecutor, builder.killGracePeriod, builder.killParallelism,
+                process -> changed(ProcessChange.Type.KILLED, process));
+        quotas = createQuotas(builder);
+        registry = builder.registry;
+        tenantCapacity = registry != null ? new Capacity(builder.capacity, builder.budget) : null;
+        processes = createStore(builder);
+        waiters = new AdmissionQueue(this::store, this::withdraw,
+                process -> quotas == null || quotas.fits(process.getPriority()));
+        // off-heap storage hands out copies of processes, their timers are found by key
+        expiry = new TimingWheel(builder.expiryTick.toNanos(), System.nanoTime(),
+                builder.storage == Storage.OFF_HEAP);
+        journal = builder.journal != null ? restore(Journal.open(builder.journal, builder.journalSegmentSize)) : null;
+        this.idGenerator = builder.idGenerator != null ? builder.idGenerator
+                : IdGenerator.sequence(journal != null ? journal.lastNumericId() : 0);
+    }
+
+    /**
+     * recovered processes are added in their original order, journal is started with snapshot of them
+     */
+    private Journal restore(Journal journal) {
+        for (Process process : journal.recovered()) {
+            store(process);
+        }
+        journal.start(processes::snapshot, killer.executor(), metrics::journalFailed);
+        return journal;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static PriorityQuotas createQuotas(Builder builder) {
+        if(builder.reserved == null && builder.quotas == null){
+            return null;
+        }
+        var reserved = builder.reserved != null ? builder.reserved : new int[Process.Priority.LEVELS];
+        var quotas = builder.quotas != null ? builder.quotas : unlimitedQuotas();
+        for (int level = 0; level < Process.Priority.LEVELS; level++) {
+            if(reserved[level] < 0){
+                throw new IllegalArgumentException("Reserved slots must not be negative");
+            }
+            if(quotas[level] < 1){
+                throw new IllegalArgumentException("Quota must be positive");
+            }
+            if(quotas[level] < reserved[level]){
+                throw new IllegalArgumentException("Quota of " + Process.Priority.of(level) + " must not be lower than its reserved slots");
+            }
+        }
+        return new PriorityQuotas(builder.capacity, reserved, quotas);
+    }
+
+    private static int[] unlimitedQuotas() {
+        var quotas = new int[Process.Priority.LEVELS];
+        Arrays.fill(quotas, Integer.MAX_VALUE);
+        return quotas;
+    }
+
+    private ProcessStore createStore(Builder builder) {
+        if(tenantCapacity != null){
+            return new PartitionedProcessStore(tenantCapacity, builder.sequence);
+        }
+        if(builder.storage == Storage.RING_BUFFER){
+            return new RingBufferProcessStore(builder.capacity, this::evicted);
+        }
+        if(builder.storage == Storage.OFF_HEAP){
+            return new OffHeapProcessStore(builder.capacity);
+        }
+        if(builder.shards > 1){
+            return new ShardedProcessStore(builder.capacity, builder.shards);
+        }
+        return new PartitionedProcessStore(builder.capacity);
     }
 
     public Optional<Process> addProcess(Process.Priority priority) {
+        return addProcess(priority, null);
+    }
+
+    /**
+     * @param handle OS process which will be killed when the process is deleted or evicted, may be null
+     * @return empty when there is no space, with {@link OverflowStrategy#BLOCK} it waits until there is space
+     */
+    public Optional<Process> addProcess(Process.Priority priority, ProcessHandle handle) {
+        return addProcess(priority, handle, null);
+    }
+
+    /**
+     * @param handle     OS process which will be killed when the process is deleted or evicted, may be null
+     * @param timeToLive process is deleted (and killed) when it elapses after the process was added, null means
+     *                   the process does not expire. Expiry is checked every {@link Builder#expiryTick}, so it may
+     *                   be late by one tick.
+     * @return empty when there is no space, with {@link OverflowStrategy#BLOCK} it waits until there is space
+     */
+    public Optional<Process> addProcess(Process.Priority priority, ProcessHandle handle, Duration timeToLive) {
+        if(priority == null){
+            throw new IllegalArgumentException("Process priority must be not null");
+        }
+        if(timeToLive != null && timeToLive.isNegative()){
+            throw new IllegalArgumentException("Time to live must be not negative");
+        }
+        checkNotClosed();
+        var start = System.nanoTime();
+        var process = idGenerator.create(priority, handle);
+        Optional<Process> added;
+        if(overflowStrategy == OverflowStrategy.BLOCK){
+            added = await(process, -1, start).join();
+        } else {
+            added = finished(offer(process, start) ? Optional.of(process) : Optional.empty(), start);
+        }
+        if(added.isPresent() && timeToLive != null){
+            expire(process, System.nanoTime() + timeToLive.toNanos());
+        }
+        return added;
+    }
+
+    /**
+     * adds process when there is space (or overflow strategy makes it), otherwise waits until deletes release
+     * capacity. Waiting processes are added in order of priority and then arrival, new processes do not overtake
+     * them. No thread is blocked while waiting.
+     *
+     * @param timeout how long to wait for capacity, the future completes with empty when it elapses
+     */
+    public CompletableFuture<Optional<Process>> addProcessAsync(Process.Priority priority, Duration timeout) {
         if(priority == null){
             throw new IllegalArgumentException("Process priority must be not null");
         }
-        var process = new Process(priority, UUID.randomUUID().toString());
+        if(timeout == null || timeout.isNegative()){
+            throw new IllegalArgumentException("Timeout must be not negative");
+        }
+        checkNotClosed();
+        var start = System.nanoTime();
+        return await(idGenerator.create(priority), timeout.toNanos(), start);
+    }
+
+    /**
+     * @param timeout nanoseconds, negative waits without limit
+     */
+    private CompletableFuture<Optional<Process>> await(Process process, long timeout, long start) {
+        if(waiters.isEmpty() && offer(process, start)){
+            return CompletableFuture.completedFuture(finished(Optional.of(process), start));
+        }
+        return waiters.enqueue(process, timeout).thenApply(added -> finished(added, start));
+    }
+
+    private void expire(Process process, long deadline) {
+        if(expiry.schedule(process, deadline)){
+            scheduleExpiry();
+        }
+    }
+
+    private void scheduleExpiry() {
+        killer.executor().schedule(this::expireProcesses, expiry.tickNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * runs every tick while there are processes with time to live, expired ones are removed one by one and killed
+     * as a batch
+     */
+    private void expireProcesses() {
+        try {
+            var expired = expiry.advance(System.nanoTime());
+            var removed = new ArrayList<Process>(expired.size());
+            for (Process process : expired) {
+                if(processes.remove(process)){
+                    removed.add(process);
+                }
+            }
+            if(!removed.isEmpty()){
+                metrics.expired(removed.size());
+                changed(ProcessChange.Type.EXPIRED, removed);
+                kill(removed);
+                waiters.admit();
+            }
+        } finally {
+            if(expiry.keepTicking()){
+                scheduleExpiry();
+            }
+        }
+    }
+
+    private boolean offer(Process process, long start) {
         boolean added;
         int iteration = 0;
 
-        while (!(added =  processes.offer(process))) {
+        while (!(added =  store(process))) {
             // sanity check to break in case of infinite loop (i.e. bug in code)
             if(iteration++ == Integer.MAX_VALUE){
                 throw new RuntimeException("PANIC: Cannot add new process: retry exhausted");
             }
-            if(!tryToFindSpace(priority)){
+            if(!tryToFindSpace(process.getPriority())){
                 break;
             }
         }
+        metrics.addRetried(process.getPriority(), iteration, start);
+        return added;
+    }
+
+    /**
+     * process has to fit quotas of its priority first, then capacity of the storage
+     */
+    private boolean store(Process process) {
+        if(quotas == null){
+            return processes.offer(process);
+        }
+        if(!quotas.acquire(process.getPriority())){
+            return false;
+        }
+        if(processes.offer(process)){
+            return true;
+        }
+        quotas.release(process.getPriority());
+        return false;
+    }
+
+    private Optional<Process> finished(Optional<Process> added, long start) {
+        if(journal != null && added.isPresent()){
+            journal.added(added.get());
+        }
+        added.ifPresent(process -> changed(ProcessChange.Type.ADDED, process));
+        metrics.addFinished(added.isPresent(), start);
+        return added;
+    }
+
+    public BatchResult addProcesses(Process.Priority priority, int count) {
+        if(count < 0){
+            throw new IllegalArgumentException("Count must not be negative");
+        }
+        return addProcesses(Collections.nCopies(count, priority));
+    }
+
+    /**
+     * capacity is reserved for the whole batch at once and victims for processes which do not fit are chosen
+     * in one pass according to the overflow strategy. It works like adding processes one by one except that
+     * processes of the batch are never evicted to make space for each other, only when batch is bigger than
+     * capacity with {@link OverflowStrategy#REMOVE_OLDEST} its first processes are skipped. With
+     * {@link OverflowStrategy#BLOCK} processes which do not fit are skipped, batch never waits. Processes which do
+     * not fit quotas of their priority are skipped, they do not evict.
+     */
+    public BatchResult addProcesses(List<Process.Priority> priorities) {
+        if(priorities == null){
+            throw new IllegalArgumentException("Process priorities must be not null");
+        }
+        var batch = new ArrayList<Process>(priorities.size());
+        for (Process.Priority priority : priorities) {
+            if(priority == null){
+                throw new IllegalArgumentException("Process priority must be not null");
+            }
+            batch.add(idGenerator.create(priority));
+        }
+        checkNotClosed();
+        var evicted = new ArrayList<Process>();
+        var added = quotas == null ? processes.offerAll(batch, overflowStrategy, evicted) : offerAll(batch, evicted);
+        if(added.isEmpty() && !batch.isEmpty()){
+            checkNotRetired();
+        }
+        if(journal != null){
+            journal.added(added);
+        }
+        metrics.added(added.size());
+        metrics.rejected(batch.size() - added.size());
+        for (Process process : evicted) {
+            metrics.evicted(process, overflowStrategy);
+            changed(ProcessChange.Type.EVICTED, process);
+        }
+        for (Process process : added) {
+            changed(ProcessChange.Type.ADDED, process);
+        }
+        kill(evicted);
+        return new BatchResult(added, evicted);
+    }
 
-        if(added){
-            return Optional.of(process);
+    /**
+     * processes which do not fit quotas of their priority are skipped, the others are offered as a batch
+     */
+    private List<Process> offerAll(List<Process> batch, List<Process> evicted) {
+        var admitted = new ArrayList<Process>(batch.size());
+        for (Process process : batch) {
+            if(quotas.acquire(process.getPriority())){
+                admitted.add(process);
+            }
+        }
+        var added = processes.offerAll(admitted, overflowStrategy, evicted);
+        // added processes keep order of the batch
+        int i = 0;
+        for (Process process : admitted) {
+            if(i < added.size() && added.get(i) == process){
+                i++;
+            } else {
+                quotas.release(process.getPriority());
+            }
         }
-        return Optional.empty();
+        return added;
     }
 
     public List<Process> getProcesses() {
-        return new LinkedList<>(processes);
+        return processes.snapshot();
+    }
+
+    /**
+     * immutable copy, it is cached and created again only when processes were changed in the meantime
+     */
+    public List<Process> getSnapshot() {
+        // version is read before copying, so changes made during copying make next call to copy again
+        var version = processes.version();
+        var cached = snapshot;
+        if(cached != null && cached.version == version){
+            return cached.processes;
+        }
+        var processes = List.copyOf(this.processes.snapshot());
+        snapshot = new Snapshot(version, processes);
+        return processes;
+    }
+
+    /**
+     * weakly consistent view in insertion order, it does not copy processes
+     */
+    public Stream<Process> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(processes.iterator(), Spliterator.ORDERED | Spliterator.NONNULL),
+                false
+        );
+    }
+
+    /**
+     * page of processes read from per priority lists of the storage, it costs O(offset + limit) instead of
+     * copying and sorting all processes
+     */
+    public ProcessPage query(ProcessQuery query) {
+        if(query == null){
+            throw new IllegalArgumentException("Query must be not null");
+        }
+        return query.execute(processes);
+    }
+
+    public Iterator<Process> iterator() {
+        return processes.iterator();
+    }
+
+    /**
+     * subscription to changes published after this call: adds, evictions (with the strategy), deletes, expiries and
+     * exits of killed OS processes. Changes are published into preallocated ring of {@link Builder#changeFeed} size
+     * without locks, so adds never wait for subscribers, slow subscribers miss the oldest changes instead.
+     * Change is published by the thread which made it after the storage was changed, so process deleted
+     * concurrently with its add may be seen as deleted before it is seen as added.
+     */
+    public ChangeSubscription subscribe(ChangeSubscription.SlowConsumerPolicy policy) {
+        if(policy == null){
+            throw new IllegalArgumentException("Slow consumer policy must be not null");
+        }
+        if(changes == null){
+            throw new IllegalStateException("Change feed is not enabled");
+        }
+        return new ChangeSubscription(changes, policy);
+    }
+
+    public ProcessManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getCapacity() {
+        return processes.capacity();
+    }
+
+    public OverflowStrategy getOverflowStrategy() {
+        return overflowStrategy;
+    }
+
+    /**
+     * changes capacity of the running manager, storage is not copied:
+     * - growing only raises the limit, waiting processes are added into the new space
+     * - shrinking lowers the limit first, so adds see it immediately, then surplus processes are chosen by
+     *   {@link OverflowStrategy#REMOVE_OLDEST} (the oldest) or {@link OverflowStrategy#REMOVE_OLDEST_LESS_IMPORTANT}
+     *   (the least important, then the oldest) in one pass and killed as a batch. Storage is locked for at most
+     *   {@value #SHRINK_BATCH} removals at once, so concurrent adds wait only for bounded time.
+     * - with {@link OverflowStrategy#SKIP} and {@link OverflowStrategy#BLOCK} nothing is evicted, adds fail (or wait)
+     *   until enough processes are deleted
+     * Off-heap storage cannot grow above its initial capacity.
+     *
+     * @throws UnsupportedOperationException with {@link Storage#RING_BUFFER} storage, it cannot be resized
+     */
+    public void setCapacity(int capacity) {
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if(quotas != null){
+            quotas.setCapacity(capacity);
+        }
+        processes.setCapacity(capacity);
+        if(overflowStrategy == OverflowStrategy.REMOVE_OLDEST
+                || overflowStrategy == OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT){
+            var evicted = new ArrayList<Process>();
+            List<Process> removed;
+            while (!(removed = processes.removeSurplus(overflowStrategy, SHRINK_BATCH)).isEmpty()) {
+                evicted.addAll(removed);
+            }
+            for (Process process : evicted) {
+                metrics.evicted(process, overflowStrategy);
+                changed(ProcessChange.Type.EVICTED, process);
+            }
+            kill(evicted);
+        }
+        waiters.admit();
+    }
+
+    public int size() {
+        return processes.size();
+    }
+
+    public int count(Process.Priority priority) {
+        if(priority == null){
+            return 0;
+        }
+        return processes.count(priority);
     }
 
     public boolean delete(Process process) {
         if(process == null){
             return false;
         }
+        checkNotClosed();
+        var start = System.nanoTime();
         var removed = processes.remove(process);
         if(removed){
-            process.kill();
+            released(process);
+            metrics.deleted(1);
+            changed(ProcessChange.Type.DELETED, process);
+            killer.kill(process);
+            waiters.admit();
         }
+        metrics.deleteFinished(start);
         return removed;
     }
 
-    public boolean deleteAll() {
-        var processes = getProcesses();
-        for (Process process : processes) {
-            delete(process);
+    public Optional<Process> find(String id) {
+        if(id == null){
+            return Optional.empty();
+        }
+        var found = processes.find(id);
+        if(found.isEmpty() && isNumeric(id)){
+            return processes.find(Long.parseLong(id));
+        }
+        return found;
+    }
+
+    public Optional<Process> find(long id) {
+        return processes.find(id);
+    }
+
+    public boolean delete(String id) {
+        if(id == null){
+            return false;
         }
-        return !processes.isEmpty();
+        checkNotClosed();
+        var start = System.nanoTime();
+        var removed = processes.remove(id);
+        if(removed.isEmpty() && isNumeric(id)){
+            removed = processes.remove(Long.parseLong(id));
+        }
+        return deleted(removed, start);
+    }
+
+    public boolean delete(long id) {
+        checkNotClosed();
+        return deleted(processes.remove(id), System.nanoTime());
+    }
+
+    private boolean deleted(Optional<Process> removed, long start) {
+        if(removed.isPresent()){
+            released(removed.get());
+            metrics.deleted(1);
+            changed(ProcessChange.Type.DELETED, removed.get());
+            killer.kill(removed.get());
+            waiters.admit();
+        }
+        metrics.deleteFinished(start);
+        return removed.isPresent();
+    }
+
+    /**
+     * all processes are detached at once and killed afterwards as a batch, in parallel
+     */
+    public boolean deleteAll() {
+        checkNotClosed();
+        var removed = processes.detachAll();
+        metrics.deleted(removed.size());
+        changed(ProcessChange.Type.DELETED, removed);
+        kill(removed);
+        waiters.admit();
+        return !removed.isEmpty();
     }
 
     /**
-     * bad complexity, O(n-squared)
-     * @param priority
-     * @return
+     * partition of given priority is detached at once and its processes are killed afterwards as a batch,
+     * in parallel
      */
     public boolean deleteAllProcessesWithPriority(Process.Priority priority) {
-        var processes = getProcesses()
-                .stream()
-                .filter(p -> p.getPriority() == priority)
-                .collect(Collectors.toList());
-        for (Process process : processes) {
-            delete(process);
+        if(priority == null){
+            return false;
         }
-        return !processes.isEmpty();
+        checkNotClosed();
+        var removed = processes.detachAll(priority);
+        metrics.deleted(removed.size());
+        changed(ProcessChange.Type.DELETED, removed);
+        kill(removed);
+        waiters.admit();
+        return !removed.isEmpty();
+    }
+
+    private void kill(List<Process> removed) {
+        for (Process process : removed) {
+            released(process);
+        }
+        killer.killAll(removed);
+    }
+
+    /**
+     * only Strings created by {@link Long#toString(long)} for non-negative ids are looked up as numeric ones
+     */
+    private static boolean isNumeric(String id) {
+        if(id.isEmpty() || id.length() > 19){
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            var c = id.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+        }
+        return id.length() < 19 || id.compareTo(String.valueOf(Long.MAX_VALUE)) <= 0;
     }
 
     private boolean tryToFindSpace(Process.Priority newProcessPriority) {
+        checkNotRetired();
+        if(tenantCapacity != null && !tenantCapacity.isFull()){
+            // tenant has space, the budget shared by all tenants is used up
+            return registry.findSpace(newProcessPriority);
+        }
+        if(quotas != null){
+            return tryToFindSpaceWithinQuotas(newProcessPriority);
+        }
 
         if(overflowStrategy == OverflowStrategy.REMOVE_OLDEST){
-            //TODO: if someone remove element in between and add another then we potentially can remove newer processes
-            // not sure if it is acceptable, otherwise we need to use locking
-            var peek = processes.peek();
-            delete(peek);
+            // processes added in the meantime get higher sequences, so they are never older than the victim,
+            // when the victim was removed in the meantime eviction fails and the search is repeated
+            processes.oldest().ifPresent(process -> evict(process));
             return true;
         }
         if(overflowStrategy == OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT){
             var candidateToRemoval = findOldestLessImportantProcess(newProcessPriority);
-            candidateToRemoval.ifPresent(process -> delete(process));
+            candidateToRemoval.ifPresent(process -> evict(process));
 
             return candidateToRemoval.isPresent();
         }
         return false;
     }
 
-    private Optional<Process> findOldestLessImportantProcess(Process.Priority newProcessPriority) {
-        for (Process.Priority lookupPriority : List.of(Process.Priority.LOW, Process.Priority.MEDIUM)) {
-            if (!newProcessPriority.isMoreImportantThan(lookupPriority)) {
-                return Optional.empty();
+    /**
+     * when priority reached its quota only its own oldest process can make space (with REMOVE_OLDEST), otherwise
+     * victim has to be above reserved slots of its priority, evicting reserved process would not make space
+     */
+    private boolean tryToFindSpaceWithinQuotas(Process.Priority newProcessPriority) {
+        if(overflowStrategy != OverflowStrategy.REMOVE_OLDEST
+                && overflowStrategy != OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT){
+            return false;
+        }
+        Optional<Process> victim = Optional.empty();
+        if(quotas.isFull(newProcessPriority)){
+            if(overflowStrategy == OverflowStrategy.REMOVE_OLDEST){
+                victim = processes.oldest(newProcessPriority);
+            }
+        } else {
+            var below = overflowStrategy == OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT
+                    ? newProcessPriority.getLevel() : Process.Priority.LEVELS;
+            for (int level = quotas.nextAboveReserved(0); level != -1 && level < below;
+                 level = quotas.nextAboveReserved(level + 1)) {
+                var candidate = processes.oldest(Process.Priority.of(level));
+                if(candidate.isPresent() && (victim.isEmpty() || candidate.get().sequence < victim.get().sequence)){
+                    victim = candidate;
+                    if(overflowStrategy == OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT){
+                        break;
+                    }
+                }
+            }
+        }
+        victim.ifPresent(this::evict);
+        return victim.isPresent();
+    }
+
+    /**
+     * process was added for waiter which timed out in the meantime, nobody knows about it, so it is removed
+     * quietly and its capacity goes to the next waiter
+     */
+    private void withdraw(Process process) {
+        if(processes.remove(process)){
+            released(process);
+            waiters.admit();
+        }
+    }
+
+    /**
+     * process was removed from storage, whatever way
+     */
+    private void released(Process process) {
+        if(quotas != null){
+            quotas.release(process.getPriority());
+        }
+        expiry.cancel(process);
+        if(journal != null){
+            journal.removed(process);
+        }
+    }
+
+    /**
+     * @return true when manager of a tenant was empty and nothing can be added to it anymore, manager with waiting
+     * adds is not retired
+     */
+    boolean retire() {
+        return waiters.isEmpty() && tenantCapacity.retire();
+    }
+
+    /**
+     * retired manager was removed from its registry, rejecting its adds would look like a full manager forever
+     */
+    private void checkNotRetired() {
+        if(tenantCapacity != null && tenantCapacity.isRetired()){
+            throw new IllegalStateException("Manager was removed from its registry as idle, it has to be asked for again");
+        }
+    }
+
+    void unretire() {
+        tenantCapacity.unretire();
+    }
+
+    boolean isRetired() {
+        return tenantCapacity.isRetired();
+    }
+
+    Optional<Process> oldest() {
+        return processes.oldest();
+    }
+
+    void evict(Process victim) {
+        if(processes.remove(victim)){
+            evicted(victim);
+        }
+    }
+
+    private void evicted(Process victim) {
+        released(victim);
+        metrics.evicted(victim, overflowStrategy);
+        changed(ProcessChange.Type.EVICTED, victim);
+        killer.kill(victim);
+    }
+
+    private void changed(ProcessChange.Type type, Process process) {
+        if(changes != null){
+            changes.publish(type, process, type == ProcessChange.Type.EVICTED ? overflowStrategy : null);
+        }
+    }
+
+    private void changed(ProcessChange.Type type, List<Process> processes) {
+        if(changes != null){
+            for (Process process : processes) {
+                changes.publish(type, process, null);
             }
-            var candidate = processes.stream()
-                    .filter(p -> p.getPriority() == lookupPriority)
-                    .findFirst();
+        }
+    }
 
-            if (candidate.isPresent()) {
-                return candidate;
+    /**
+     * the oldest process of the least important level below given priority, storages find the level in their
+     * bitmap of occupied levels instead of checking every level
+     */
+    Optional<Process> findOldestLessImportantProcess(Process.Priority newProcessPriority) {
+        return processes.oldestLessImportantThan(newProcessPriority);
+    }
+
+    /**
+     * flushes journal to disk and stops writing it, manager without journal does not need to be closed. Closed
+     * manager with journal throws {@link IllegalStateException} from adds and deletes before it changes anything,
+     * changes racing with closing are kept only in memory.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if(journal != null){
+            journal.close();
+        }
+    }
+
+    private void checkNotClosed() {
+        if(closed && journal != null){
+            throw new IllegalStateException("Manager is closed, its journal is not written anymore");
+        }
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final List<Process> processes;
+
+        private Snapshot(long version, List<Process> processes) {
+            this.version = version;
+            this.processes = processes;
+        }
+    }
+
+    //TODO: we may consider to do also this like: ProcessManager.builder().capacity(n).onOverflow().removeOldest().build()
+    public static final class Builder {
+        private int capacity;
+        private OverflowStrategy overflowStrategy = OverflowStrategy.SKIP;
+        private IdGenerator idGenerator;
+        private Storage storage = Storage.PARTITIONED;
+        private ScheduledExecutorService killExecutor;
+        private Duration killGracePeriod;
+        private int killParallelism = Runtime.getRuntime().availableProcessors();
+        private int shards = 1;
+        private Duration expiryTick = DEFAULT_EXPIRY_TICK;
+        private Path journal;
+        private int journalSegmentSize = Journal.DEFAULT_SEGMENT_SIZE;
+        private int[] reserved;
+        private int changeFeedSize;
+        private ProcessManagerRegistry registry;
+        private Capacity budget;
+        private AtomicLong sequence;
+        private int[] quotas;
+
+        private Builder() {
+        }
+
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder overflowStrategy(OverflowStrategy overflowStrategy) {
+            this.overflowStrategy = overflowStrategy;
+            return this;
+        }
+
+        /**
+         * by default every manager gets its own {@link IdGenerator#sequence()}
+         */
+        public Builder idGenerator(IdGenerator idGenerator) {
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        public Builder storage(Storage storage) {
+            this.storage = storage;
+            return this;
+        }
+
+        /**
+         * splits partitioned storage into shards picked by hash of process id, so threads adding and deleting
+         * processes rarely wait for each other. Capacity stays global, REMOVE_OLDEST evicts the oldest of shard
+         * heads, which is the process with the lowest sequence.
+         */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * executor used to signal OS processes and to expire processes with time to live, by default one shared
+         * by all managers with daemon threads
+         */
+        public Builder killExecutor(ScheduledExecutorService killExecutor) {
+            this.killExecutor = killExecutor;
+            return this;
+        }
+
+        /**
+         * time OS process has to exit after it was asked to terminate, then it is killed forcibly, 5 seconds
+         * by default
+         */
+        public Builder killGracePeriod(Duration killGracePeriod) {
+            this.killGracePeriod = killGracePeriod;
+            return this;
+        }
+
+        /**
+         * the most tasks of kill executor signalling process groups of one batch (e.g. all processes of deleted
+         * priority), number of available processors by default
+         */
+        public Builder killParallelism(int killParallelism) {
+            this.killParallelism = killParallelism;
+            return this;
+        }
+
+        /**
+         * how often processes with time to live are checked for expiry, 10 milliseconds by default
+         */
+        public Builder expiryTick(Duration expiryTick) {
+            this.expiryTick = expiryTick;
+            return this;
+        }
+
+        /**
+         * adds and removals are written to journal in given directory and processes found there are restored
+         * in their original order. OS process handles and time to live are not persisted. Default id generator
+         * continues after the highest restored id, other generators must not repeat ids of restored processes.
+         */
+        public Builder journal(Path directory) {
+            this.journal = directory;
+            return this;
+        }
+
+        /**
+         * size of memory-mapped journal files, when one is full snapshot is taken and older files are deleted,
+         * 16 MB by default
+         */
+        public Builder journalSegmentSize(int journalSegmentSize) {
+            this.journalSegmentSize = journalSegmentSize;
+            return this;
+        }
+
+        /**
+         * slots which only processes with given priority can take, other priorities see capacity lowered by reserved
+         * slots which are not used yet. Important processes then find space without evicting.
+         */
+        public Builder reserve(Process.Priority priority, int slots) {
+            if(priority == null){
+                throw new IllegalArgumentException("Process priority must be not null");
             }
+            if(reserved == null){
+                reserved = new int[Process.Priority.LEVELS];
+            }
+            reserved[priority.getLevel()] = slots;
+            return this;
+        }
 
+        /**
+         * maximal number of processes with given priority, when it is reached the priority behaves like full
+         * manager: REMOVE_OLDEST evicts the oldest process with the same priority, other strategies skip (or wait)
+         */
+        public Builder quota(Process.Priority priority, int slots) {
+            if(priority == null){
+                throw new IllegalArgumentException("Process priority must be not null");
+            }
+            if(quotas == null){
+                quotas = unlimitedQuotas();
+            }
+            quotas[priority.getLevel()] = slots;
+            return this;
         }
-        return Optional.empty();
+
+        /**
+         * number of the latest changes kept for subscribers (rounded up to power of two), 0 by default, which
+         * disables {@link ProcessManager#subscribe}
+         */
+        public Builder changeFeed(int size) {
+            this.changeFeedSize = size;
+            return this;
+        }
+
+        /**
+         * manager of registry tenant, its capacity is reserved also in the budget shared by all tenants and its
+         * processes are ordered by sequence shared by all tenants
+         */
+        Builder tenantOf(ProcessManagerRegistry registry, Capacity budget, AtomicLong sequence) {
+            this.registry = registry;
+            this.budget = budget;
+            this.sequence = sequence;
+            return this;
+        }
+
+        public ProcessManager build() {
+            return new ProcessManager(this);
+        }
+    }
+
+    public enum Storage{
+        /**
+         * FIFO partition per priority with id index, supports all overflow strategies
+         */
+        PARTITIONED,
+        /**
+         * fixed-capacity ring for {@link OverflowStrategy#REMOVE_OLDEST}, adding into full manager replaces
+         * the oldest process in one step without allocation, but lookup by id scans the ring
+         */
+        RING_BUFFER,
+        /**
+         * processes are kept in direct buffers and {@link Process} instances are created only when they are read,
+         * so heap does not grow with capacity. Supports only numeric ids and all overflow strategies, cannot be
+         * used with journal.
+         */
+        OFF_HEAP
     }
 
     public enum OverflowStrategy{
         SKIP,
         REMOVE_OLDEST,
-        REMOVE_OLDEST_LESS_IMPORTANT;
+        REMOVE_OLDEST_LESS_IMPORTANT,
+        /**
+         * add waits until processes are deleted, batches do not wait, processes which do not fit are skipped
+         */
+        BLOCK;
     }
 }
@@ -0,0 +1,144 @@
+package org.pawele;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what the manager does, they are striped ({@link LongAdder}), so updating them from many threads
+ * does not contend. Values are read without stopping updates, so they are not consistent with each other.
+ */
+public class ProcessManagerMetrics {
+
+    // adds which needed more retries are reported as JFR event
+    static final int CONTENDED_ADD_RETRIES = 16;
+
+    private final LongAdder added = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder addRetries = new LongAdder();
+    private final LongAdder journalFailures = new LongAdder();
+    private final LatencyHistogram addLatency = new LatencyHistogram();
+    private final LatencyHistogram deleteLatency = new LatencyHistogram();
+
+    void added(int count) {
+        added.add(count);
+    }
+
+    void rejected(int count) {
+        rejected.add(count);
+    }
+
+    void evicted(Process process, ProcessManager.OverflowStrategy overflowStrategy) {
+        evicted.increment();
+        var event = new EvictionEvent();
+        if (event.isEnabled()) {
+            event.processId = process.getId();
+            event.priority = process.getPriority().toString();
+            event.overflowStrategy = overflowStrategy.name();
+            event.commit();
+        }
+    }
+
+    void deleted(int count) {
+        deleted.add(count);
+    }
+
+    void expired(int count) {
+        expired.add(count);
+    }
+
+    void addRetried(Process.Priority priority, int retries, long startNanos) {
+        if (retries > 0) {
+            addRetries.add(retries);
+            if (retries >= CONTENDED_ADD_RETRIES) {
+                var event = new ContendedAddEvent();
+                if (event.isEnabled()) {
+                    event.priority = priority.toString();
+                    event.retries = retries;
+                    event.latency = System.nanoTime() - startNanos;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    void journalFailed() {
+        journalFailures.increment();
+    }
+
+    /**
+     * for adds which waited for capacity latency includes the waiting
+     */
+    void addFinished(boolean added, long startNanos) {
+        addLatency.record(System.nanoTime() - startNanos);
+        if (added) {
+            this.added.increment();
+        } else {
+            rejected.increment();
+        }
+    }
+
+    void deleteFinished(long startNanos) {
+        deleteLatency.record(System.nanoTime() - startNanos);
+    }
+
+    public long getAdded() {
+        return added.sum();
+    }
+
+    /**
+     * adds which returned empty, because there was no space and strategy could not make it or waiting for it
+     * timed out
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    /**
+     * processes removed by delete methods, evictions and expiries are not counted here
+     */
+    public long getDeleted() {
+        return deleted.sum();
+    }
+
+    /**
+     * processes removed because their time to live elapsed
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * iterations of add retry loop, each one happens after add found manager full and tried to make space
+     */
+    public long getAddRetries() {
+        return addRetries.sum();
+    }
+
+    /**
+     * background writes of the journal which failed (forcing segment to disk or writing snapshot), older segments
+     * are kept then, so nothing is lost, but the journal directory grows until a later snapshot succeeds
+     */
+    public long getJournalFailures() {
+        return journalFailures.sum();
+    }
+
+    /**
+     * latency of single adds
+     */
+    public LatencyHistogram getAddLatency() {
+        return addLatency;
+    }
+
+    /**
+     * latency of single deletes
+     */
+    public LatencyHistogram getDeleteLatency() {
+        return deleteLatency;
+    }
+}
@@ -0,0 +1,287 @@
+package org.pawele;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Managers of many tenants created on demand, with capacity of every tenant and a budget shared by all of them.
+ * - admission costs two CAS: slot is reserved in capacity of the tenant and then in the budget
+ * - when the budget is used up, victim is chosen among processes of all tenants according to the overflow strategy,
+ *   it is found by scanning heads of all tenants, so only overflow costs O(tenants)
+ * - managers of tenants are partitioned storages without their own threads, empty manager costs only few objects
+ * - managers which are empty and were not asked for during idle timeout are removed, adds into removed manager
+ *   throw {@link IllegalStateException}, so a kept manager fails loudly instead of rejecting adds silently
+ * - batches evict only processes of their own tenant
+ */
+public class ProcessManagerRegistry {
+
+    static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+    private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final Capacity budget;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int tenantCapacity;
+    private final ProcessManager.OverflowStrategy overflowStrategy;
+    private final long idleTimeout;
+    private final ScheduledExecutorService killExecutor;
+    private final Duration killGracePeriod;
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    private ProcessManagerRegistry(Builder builder) {
+        if(builder.capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if(builder.tenantCapacity < 1){
+            throw new IllegalArgumentException("Tenant capacity must be positive");
+        }
+        if(builder.overflowStrategy == null || builder.overflowStrategy == ProcessManager.OverflowStrategy.BLOCK){
+            throw new IllegalArgumentException("Registry supports SKIP, REMOVE_OLDEST and REMOVE_OLDEST_LESS_IMPORTANT overflow strategies");
+        }
+        if(builder.idleTimeout == null || builder.idleTimeout.isNegative()){
+            throw new IllegalArgumentException("Idle timeout must be not negative");
+        }
+        this.budget = new Capacity(builder.capacity);
+        this.tenantCapacity = builder.tenantCapacity;
+        this.overflowStrategy = builder.overflowStrategy;
+        this.idleTimeout = builder.idleTimeout.toNanos();
+        this.killExecutor = builder.killExecutor;
+        this.killGracePeriod = builder.killGracePeriod;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * manager of the tenant, it is created when there is none. Idle managers are removed while managers are
+     * asked for, at most once per idle timeout.
+     */
+    public ProcessManager manager(String tenant) {
+        if(tenant == null){
+            throw new IllegalArgumentException("Tenant must be not null");
+        }
+        var now = System.nanoTime();
+        var last = lastSweep.get();
+        if(now - last >= idleTimeout && lastSweep.compareAndSet(last, now)){
+            removeIdle(now);
+        }
+        var found = tenants.computeIfAbsent(tenant, this::create);
+        found.lastAccess = now;
+        // manager is being retired inside compute of its entry, so compute waits until it is either removed or kept
+        if(found.manager.isRetired()){
+            found = tenants.compute(tenant, (name, current) -> {
+                var kept = current == null || current.manager.isRetired() ? create(name) : current;
+                kept.lastAccess = now;
+                return kept;
+            });
+        }
+        return found.manager;
+    }
+
+    public Optional<ProcessManager> find(String tenant) {
+        if(tenant == null){
+            return Optional.empty();
+        }
+        var found = tenants.get(tenant);
+        return found == null ? Optional.empty() : Optional.of(found.manager);
+    }
+
+    /**
+     * number of tenants with manager
+     */
+    public int tenants() {
+        return tenants.size();
+    }
+
+    /**
+     * number of processes of all tenants
+     */
+    public int size() {
+        return budget.used();
+    }
+
+    public int getCapacity() {
+        return budget.limit();
+    }
+
+    /**
+     * removes managers which are empty and were not asked for during idle timeout
+     */
+    public void removeIdle() {
+        removeIdle(System.nanoTime());
+    }
+
+    /**
+     * manager is retired and removed inside compute of its entry, so {@link #manager(String)} never gets a manager
+     * which is being retired from the map
+     */
+    private void removeIdle(long now) {
+        for (Tenant tenant : tenants.values()) {
+            if(now - tenant.lastAccess >= idleTimeout){
+                tenants.computeIfPresent(tenant.name, (name, current) -> retireIdle(current, now) ? null : current);
+            }
+        }
+    }
+
+    private boolean retireIdle(Tenant tenant, long now) {
+        var lastAccess = tenant.lastAccess;
+        // manager is retired only when it is empty, so its processes cannot get lost
+        if(now - lastAccess < idleTimeout || !tenant.manager.retire()){
+            return false;
+        }
+        // access is written before retirement is checked, so either it is seen here or it sees retirement
+        if(tenant.lastAccess != lastAccess){
+            tenant.manager.unretire();
+            return false;
+        }
+        return true;
+    }
+
+    private Tenant create(String name) {
+        var manager = ProcessManager.builder()
+                .capacity(tenantCapacity)
+                .overflowStrategy(overflowStrategy)
+                .killExecutor(killExecutor)
+                .killGracePeriod(killGracePeriod)
+                .tenantOf(this, budget, sequence)
+                .build();
+        return new Tenant(name, manager);
+    }
+
+    /**
+     * evicts process of any tenant when the budget is used up
+     *
+     * @return false when there is no process which could be evicted
+     */
+    boolean findSpace(Process.Priority newProcessPriority) {
+        if(overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST){
+            return evictOldest();
+        }
+        if(overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT){
+            return evictLeastImportant(newProcessPriority);
+        }
+        return false;
+    }
+
+    private boolean evictOldest() {
+        ProcessManager owner = null;
+        Process oldest = null;
+        for (Tenant tenant : tenants.values()) {
+            var head = tenant.manager.oldest();
+            if(head.isPresent() && (oldest == null || head.get().sequence < oldest.sequence)){
+                oldest = head.get();
+                owner = tenant.manager;
+            }
+        }
+        if(owner == null){
+            return false;
+        }
+        owner.evict(oldest);
+        return true;
+    }
+
+    /**
+     * every tenant offers the oldest process of its least important level below the priority, the least important
+     * of them (and then the oldest) is evicted
+     */
+    private boolean evictLeastImportant(Process.Priority priority) {
+        ProcessManager owner = null;
+        Process victim = null;
+        for (Tenant tenant : tenants.values()) {
+            var candidate = tenant.manager.findOldestLessImportantProcess(priority);
+            if(candidate.isEmpty()){
+                continue;
+            }
+            var process = candidate.get();
+            if(victim == null || victim.getPriority().isMoreImportantThan(process.getPriority())
+                    || (victim.getPriority() == process.getPriority() && process.sequence < victim.sequence)){
+                victim = process;
+                owner = tenant.manager;
+            }
+        }
+        if(owner == null){
+            return false;
+        }
+        owner.evict(victim);
+        return true;
+    }
+
+    private static final class Tenant {
+        private final String name;
+        private final ProcessManager manager;
+        private volatile long lastAccess;
+
+        private Tenant(String name, ProcessManager manager) {
+            this.name = name;
+            this.manager = manager;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    public static final class Builder {
+        private int capacity;
+        private int tenantCapacity;
+        private ProcessManager.OverflowStrategy overflowStrategy = ProcessManager.OverflowStrategy.SKIP;
+        private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        private ScheduledExecutorService killExecutor;
+        private Duration killGracePeriod;
+
+        private Builder() {
+        }
+
+        /**
+         * budget of processes shared by all tenants
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * maximal number of processes of one tenant
+         */
+        public Builder tenantCapacity(int tenantCapacity) {
+            this.tenantCapacity = tenantCapacity;
+            return this;
+        }
+
+        /**
+         * applied within tenant when its capacity is used up and across tenants when the budget is used up
+         */
+        public Builder overflowStrategy(ProcessManager.OverflowStrategy overflowStrategy) {
+            this.overflowStrategy = overflowStrategy;
+            return this;
+        }
+
+        /**
+         * empty managers which were not asked for during this time are removed, 1 minute by default
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * see {@link ProcessManager.Builder#killExecutor}
+         */
+        public Builder killExecutor(ScheduledExecutorService killExecutor) {
+            this.killExecutor = killExecutor;
+            return this;
+        }
+
+        /**
+         * see {@link ProcessManager.Builder#killGracePeriod}
+         */
+        public Builder killGracePeriod(Duration killGracePeriod) {
+            this.killGracePeriod = killGracePeriod;
+            return this;
+        }
+
+        public ProcessManagerRegistry build() {
+            return new ProcessManagerRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.pawele;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Page of processes returned by {@link ProcessManager#query(ProcessQuery)}
+ */
+public class ProcessPage {
+    private final List<Process> processes;
+    private final Cursor nextCursor;
+
+    ProcessPage(List<Process> processes, Cursor nextCursor) {
+        this.processes = processes;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Process> getProcesses() {
+        return processes;
+    }
+
+    /**
+     * cursor to pass to {@link ProcessQuery.Builder#after(Cursor)} for the next page, empty when there were no more
+     * processes
+     */
+    public Optional<Cursor> getNextCursor() {
+        return Optional.ofNullable(nextCursor);
+    }
+
+    /**
+     * position after the last process of a page. It remembers the last process read from every ordered list of the
+     * storage, so next page continues from them without walking processes of previous pages.
+     */
+    public static final class Cursor {
+        private final ProcessQuery.Order order;
+        private final Process last;
+        // [priority][lane]
+        private final Process[][] lanes;
+
+        Cursor(ProcessQuery.Order order, Process last, Process[][] lanes) {
+            this.order = order;
+            this.last = last;
+            this.lanes = lanes;
+        }
+
+        ProcessQuery.Order order() {
+            return order;
+        }
+
+        Process last() {
+            return last;
+        }
+
+        Process[][] lanes() {
+            return lanes;
+        }
+    }
+}
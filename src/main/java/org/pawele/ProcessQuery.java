@@ -0,0 +1,217 @@
+package org.pawele;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Filter, order and page of {@link ProcessManager#query(ProcessQuery)}. Processes are read from per priority lists
+ * kept by the storage in insertion order, nothing is sorted:
+ * - creation order merges lists of chosen priorities by sequence, priority order reads them one after another
+ * - page continues from its cursor in O(1), offset skips processes one by one
+ * - ring buffer storage has no per priority lists, so it walks all processes
+ * - levels without processes are skipped, so a query reads only lists which have processes
+ */
+public class ProcessQuery {
+    // levels of chosen priorities, null for all
+    private final BitSet priorities;
+    private final Order order;
+    private final ProcessPage.Cursor after;
+    private final int offset;
+    private final int limit;
+
+    private ProcessQuery(Builder builder) {
+        if(builder.limit < 1){
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if(builder.offset < 0){
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        if(builder.order == null){
+            throw new IllegalArgumentException("Order must be not null");
+        }
+        if(builder.after != null && builder.after.order() != builder.order){
+            throw new IllegalArgumentException("Cursor was created by query with different order");
+        }
+        this.priorities = builder.priorities.isEmpty() ? null : (BitSet) builder.priorities.clone();
+        this.order = builder.order;
+        this.after = builder.after;
+        this.offset = builder.offset;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    ProcessPage execute(ProcessStore store) {
+        // lanes of levels which were not read yet are null
+        var lanes = new Process[Process.Priority.LEVELS][];
+        if (after != null) {
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = after.lanes()[i] != null ? after.lanes()[i].clone() : null;
+            }
+        }
+        var last = after != null ? after.last() : null;
+        var sources = sources(store, lanes, last);
+
+        var processes = new ArrayList<Process>(Math.min(limit, store.size()));
+        for (long skipped = 0; skipped < (long) offset + limit; skipped++) {
+            var source = next(sources);
+            if (source == null) {
+                break;
+            }
+            var process = source.take();
+            lanes[process.getPriority().getLevel()][store.laneOf(process)] = process;
+            last = process;
+            if (skipped >= offset) {
+                processes.add(process);
+            }
+        }
+        var more = next(sources) != null;
+        return new ProcessPage(processes, more ? new ProcessPage.Cursor(order, last, lanes) : null);
+    }
+
+    /**
+     * lists of chosen priorities, continuing after the cursor
+     */
+    private List<Source> sources(ProcessStore store, Process[][] lanes, Process last) {
+        var sources = new ArrayList<Source>();
+        for (int level = Process.Priority.LEVELS - 1; level >= 0; level--) {
+            if (priorities != null && !priorities.get(level)) {
+                continue;
+            }
+            var priority = Process.Priority.of(level);
+            // in priority order more important priorities were already read
+            if (order == Order.PRIORITY && last != null && priority.isMoreImportantThan(last.getPriority())) {
+                continue;
+            }
+            if (lanes[level] == null) {
+                if (store.count(priority) == 0) {
+                    continue;
+                }
+                lanes[level] = new Process[store.lanes()];
+            }
+            sources.add(new Source(store.iterator(priority, lanes[level]), order == Order.CREATION ? last : null));
+        }
+        return sources;
+    }
+
+    /**
+     * @return source of the next process: the oldest head for creation order, the first non empty source
+     * (most important priority) for priority order
+     */
+    private Source next(List<Source> sources) {
+        Source next = null;
+        for (Source source : sources) {
+            var head = source.peek();
+            if (head == null) {
+                continue;
+            }
+            if (order == Order.PRIORITY) {
+                return source;
+            }
+            if (next == null || head.sequence < next.peek().sequence) {
+                next = source;
+            }
+        }
+        return next;
+    }
+
+    private static final class Source {
+        private final Iterator<Process> iterator;
+        // processes up to that one were already returned
+        private final Process after;
+        private Process head;
+
+        private Source(Iterator<Process> iterator, Process after) {
+            this.iterator = iterator;
+            this.after = after;
+        }
+
+        private Process peek() {
+            while (head == null && iterator.hasNext()) {
+                var process = iterator.next();
+                if (after == null || process.sequence > after.sequence) {
+                    head = process;
+                }
+            }
+            return head;
+        }
+
+        private Process take() {
+            var result = peek();
+            head = null;
+            return result;
+        }
+    }
+
+    public static final class Builder {
+        private final BitSet priorities = new BitSet(Process.Priority.LEVELS);
+        private Order order = Order.CREATION;
+        private ProcessPage.Cursor after;
+        private int offset;
+        private int limit = 50;
+
+        private Builder() {
+        }
+
+        /**
+         * only processes with given priorities, all when none is given
+         */
+        public Builder priorities(Process.Priority... priorities) {
+            for (Process.Priority priority : priorities) {
+                if(priority == null){
+                    throw new IllegalArgumentException("Process priority must be not null");
+                }
+                this.priorities.set(priority.getLevel());
+            }
+            return this;
+        }
+
+        public Builder orderBy(Order order) {
+            this.order = order;
+            return this;
+        }
+
+        /**
+         * continues after the page which returned the cursor, query has to have the same order
+         */
+        public Builder after(ProcessPage.Cursor after) {
+            this.after = after;
+            return this;
+        }
+
+        /**
+         * processes skipped before the page, counted from the cursor if there is one
+         */
+        public Builder offset(int offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        /**
+         * maximum number of processes in the page, 50 by default
+         */
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public ProcessQuery build() {
+            return new ProcessQuery(this);
+        }
+    }
+
+    public enum Order {
+        /**
+         * the oldest first
+         */
+        CREATION,
+        /**
+         * the most important first, processes with the same priority the oldest first
+         */
+        PRIORITY
+    }
+}
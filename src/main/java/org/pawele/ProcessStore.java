@@ -0,0 +1,143 @@
+package org.pawele;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Storage of processes used by {@link ProcessManager}, it is responsible only for keeping processes
+ * within capacity, overflow strategies are applied by the manager.
+ * - keys are either String ids or boxed numeric ids, see {@link Process#key()}
+ */
+interface ProcessStore {
+
+    /**
+     * @return false when there is no space for the process
+     */
+    boolean offer(Process process);
+
+    /**
+     * adds processes in one step, for processes which do not fit victims are chosen according to the strategy
+     * (never among processes of the batch) and appended to evicted
+     * @return processes which were added, in the batch order
+     */
+    List<Process> offerAll(List<Process> processes, ProcessManager.OverflowStrategy overflowStrategy,
+                           List<Process> evicted);
+
+    Optional<Process> find(Object key);
+
+    boolean remove(Process process);
+
+    Optional<Process> remove(Object key);
+
+    int size();
+
+    int count(Process.Priority priority);
+
+    /**
+     * changes whenever processes are added or removed
+     */
+    long version();
+
+    /**
+     * weakly consistent iterator in insertion order, it does not copy processes
+     */
+    Iterator<Process> iterator();
+
+    /**
+     * number of separately ordered lists of processes with the same priority, see {@link #laneOf(Process)}
+     */
+    default int lanes() {
+        return 1;
+    }
+
+    default int laneOf(Process process) {
+        return 0;
+    }
+
+    /**
+     * weakly consistent iterator over processes with given priority in insertion order
+     *
+     * @param after for every lane the process of that priority iteration continues after, null to start from the
+     *              first one. When it was removed in the meantime, iteration continues with processes added after it.
+     *              The default implementation filters {@link #iterator()}, so it walks processes before it too.
+     */
+    default Iterator<Process> iterator(Process.Priority priority, Process[] after) {
+        var all = iterator();
+        var last = after[0];
+        return new Iterator<>() {
+            private Process next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Process next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = advance();
+                return result;
+            }
+
+            private Process advance() {
+                while (all.hasNext()) {
+                    var process = all.next();
+                    if (process.getPriority() == priority && (last == null || process.sequence > last.sequence)) {
+                        return process;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    int capacity();
+
+    /**
+     * processes above the new capacity are kept until they are removed by {@link #removeSurplus} or deleted,
+     * until then adds fail
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * removes at most max processes which are above capacity, victims are chosen in one pass: the oldest ones for
+     * {@link ProcessManager.OverflowStrategy#REMOVE_OLDEST}, the oldest of the least important priority otherwise
+     * @return removed processes
+     */
+    List<Process> removeSurplus(ProcessManager.OverflowStrategy overflowStrategy, int max);
+
+    Optional<Process> oldest();
+
+    Optional<Process> oldestLessImportantThan(Process.Priority priority);
+
+    /**
+     * the default implementation walks {@link #iterator()}
+     */
+    default Optional<Process> oldest(Process.Priority priority) {
+        var all = iterator();
+        while (all.hasNext()) {
+            var process = all.next();
+            if (process.getPriority() == priority) {
+                return Optional.of(process);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * removes all processes at once, removed processes are returned in insertion order
+     */
+    List<Process> detachAll();
+
+    List<Process> detachAll(Process.Priority priority);
+
+    /**
+     * weakly consistent copy in insertion order
+     */
+    List<Process> snapshot();
+}
@@ -0,0 +1,277 @@
+package org.pawele;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-capacity ring of slots for {@link ProcessManager.OverflowStrategy#REMOVE_OLDEST}, adding never fails:
+ * every add claims next sequence and replaces whatever is in its slot, which is always the oldest position.
+ * - add does not allocate and does not retry, it only waits for writer of previous lap of the same slot,
+ *   which happens only when more than capacity adds race
+ * - process is removed in O(1) as its slot is known from its sequence
+ * - removed slot is reused when claim sequence reaches it, until then add replaces the oldest process
+ *   even though there is a free slot somewhere else
+ * - there is no id index (it would allocate), so looking up by id scans the ring
+ */
+class RingBufferProcessStore implements ProcessStore {
+
+    private static final int MAX_SPINS = 100;
+
+    private final int capacity;
+    private final AtomicReferenceArray<Process> slots;
+    // sequence of the last add published in the slot
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    // incremented after process is written or removed, so it never runs ahead of slots
+    private final AtomicLong modifications = new AtomicLong();
+    // number of processes in the ring per priority
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(Process.Priority.LEVELS);
+    private final Consumer<Process> onReplaced;
+
+    RingBufferProcessStore(int capacity, Consumer<Process> onReplaced) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, i - capacity);
+        }
+        this.onReplaced = onReplaced;
+    }
+
+    @Override
+    public boolean offer(Process process) {
+        var replaced = write(claimed.getAndIncrement(), process);
+        if (replaced != null) {
+            onReplaced.accept(replaced);
+        }
+        return true;
+    }
+
+    /**
+     * sequences for whole batch are claimed at once, when batch is bigger than capacity only its last processes
+     * are written, as the first ones would be replaced by them anyway
+     */
+    @Override
+    public List<Process> offerAll(List<Process> processes, ProcessManager.OverflowStrategy overflowStrategy,
+                                  List<Process> evicted) {
+        var toAdd = processes.subList(Math.max(0, processes.size() - capacity), processes.size());
+        long first = claimed.getAndAdd(toAdd.size());
+        for (int i = 0; i < toAdd.size(); i++) {
+            var replaced = write(first + i, toAdd.get(i));
+            if (replaced != null) {
+                evicted.add(replaced);
+            }
+        }
+        return List.copyOf(toAdd);
+    }
+
+    private Process write(long sequence, Process process) {
+        int slot = slotOf(sequence);
+        for (int spins = 0; published.get(slot) != sequence - capacity; spins++) {
+            // previous writer may be descheduled, so after a while give it the CPU
+            if (spins < MAX_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        process.stamp(sequence);
+        var replaced = slots.getAndSet(slot, process);
+        published.set(slot, sequence);
+        counts.incrementAndGet(process.getPriority().getLevel());
+        if (replaced != null) {
+            counts.decrementAndGet(replaced.getPriority().getLevel());
+        }
+        modifications.incrementAndGet();
+        return replaced;
+    }
+
+    @Override
+    public Optional<Process> find(Object key) {
+        for (int i = 0; i < capacity; i++) {
+            var process = slots.get(i);
+            if (process != null && key.equals(process.key())) {
+                return Optional.of(process);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean remove(Process process) {
+        if (!slots.compareAndSet(slotOf(process.sequence), process, null)) {
+            return false;
+        }
+        removed(process);
+        return true;
+    }
+
+    private void removed(Process process) {
+        counts.decrementAndGet(process.getPriority().getLevel());
+        modifications.incrementAndGet();
+    }
+
+    @Override
+    public Optional<Process> remove(Object key) {
+        var found = find(key);
+        if (found.isPresent() && remove(found.get())) {
+            return found;
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * capacity is the length of the ring, which cannot change without copying it
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        throw new UnsupportedOperationException("Ring buffer storage cannot be resized");
+    }
+
+    @Override
+    public List<Process> removeSurplus(ProcessManager.OverflowStrategy overflowStrategy, int max) {
+        return List.of();
+    }
+
+    @Override
+    public Optional<Process> oldest() {
+        long from = claimed.get();
+        for (long sequence = from; sequence < from + capacity; sequence++) {
+            var process = slots.get(slotOf(sequence));
+            if (process != null) {
+                return Optional.of(process);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Process> oldestLessImportantThan(Process.Priority priority) {
+        Process oldest = null;
+        long from = claimed.get();
+        for (long sequence = from; sequence < from + capacity; sequence++) {
+            var process = slots.get(slotOf(sequence));
+            if (process != null && priority.isMoreImportantThan(process.getPriority())
+                    && (oldest == null || oldest.getPriority().isMoreImportantThan(process.getPriority()))) {
+                oldest = process;
+            }
+        }
+        return Optional.ofNullable(oldest);
+    }
+
+    @Override
+    public List<Process> detachAll() {
+        var detached = new ArrayList<Process>();
+        long from = claimed.get();
+        for (long sequence = from; sequence < from + capacity; sequence++) {
+            var process = slots.getAndSet(slotOf(sequence), null);
+            if (process != null) {
+                removed(process);
+                detached.add(process);
+            }
+        }
+        return detached;
+    }
+
+    @Override
+    public List<Process> detachAll(Process.Priority priority) {
+        var detached = new ArrayList<Process>();
+        long from = claimed.get();
+        for (long sequence = from; sequence < from + capacity; sequence++) {
+            var process = slots.get(slotOf(sequence));
+            if (process != null && process.getPriority() == priority && remove(process)) {
+                detached.add(process);
+            }
+        }
+        return detached;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            size += counts.get(i);
+        }
+        return size;
+    }
+
+    @Override
+    public int count(Process.Priority priority) {
+        return counts.get(priority.getLevel());
+    }
+
+    @Override
+    public long version() {
+        return modifications.get();
+    }
+
+    /**
+     * walks the ring once starting from the oldest position
+     */
+    @Override
+    public Iterator<Process> iterator() {
+        long from = claimed.get();
+        return new Iterator<>() {
+            private long sequence = from;
+            private Process next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Process next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = advance();
+                return result;
+            }
+
+            private Process advance() {
+                while (sequence < from + capacity) {
+                    var process = slots.get(slotOf(sequence++));
+                    if (process != null) {
+                        return process;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * slots are read starting from the next one to be claimed, which is the oldest position in the ring
+     */
+    @Override
+    public List<Process> snapshot() {
+        var result = new ArrayList<Process>(capacity);
+        long from = claimed.get();
+        for (long sequence = from; sequence < from + capacity; sequence++) {
+            var process = slots.get(slotOf(sequence));
+            if (process != null) {
+                result.add(process);
+            }
+        }
+        return result;
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,331 @@
+package org.pawele;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits processes into shards (partitioned storages) picked by hash of process id, so adds and deletes
+ * of different processes rarely wait for the same monitor. Shards share one capacity and one sequence,
+ * so the limit is global and processes of all shards can be merged into insertion order.
+ * - lookup and removal by id go straight to the shard of the id
+ * - the oldest process is the oldest of shard heads, heads are not read atomically: the result is older than every
+ *   process added before the search started, but it can be newer than a process added during the search to a shard
+ *   which was already checked; such result is searched again a few times, and when adds keep racing with the
+ *   search it is returned, so the victim is off only by processes added concurrently with the search, it is never
+ *   newer than a process which was in the storage when the search started
+ * - bulk operations are atomic per shard, not for the whole storage
+ */
+class ShardedProcessStore implements ProcessStore {
+
+    private final Capacity capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final PartitionedProcessStore[] shards;
+
+    ShardedProcessStore(int capacity, int shards) {
+        this.capacity = new Capacity(capacity);
+        this.shards = new PartitionedProcessStore[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new PartitionedProcessStore(this.capacity, sequence);
+        }
+    }
+
+    @Override
+    public boolean offer(Process process) {
+        return shardOf(process.key()).offer(process);
+    }
+
+    /**
+     * capacity is reserved up front, victims are looked up in all shards one by one and their capacity is handed
+     * over to the batch
+     */
+    @Override
+    public List<Process> offerAll(List<Process> processes, ProcessManager.OverflowStrategy overflowStrategy,
+                                  List<Process> evicted) {
+        int reserved = capacity.reserve(processes.size());
+        List<Process> toAdd;
+        if (overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST) {
+            while (reserved < processes.size()) {
+                var victim = oldest();
+                if (victim.isEmpty()) {
+                    break;
+                }
+                if (shardOf(victim.get().key()).removeKeepingCapacity(victim.get())) {
+                    evicted.add(victim.get());
+                    reserved++;
+                }
+            }
+            // when batch is bigger than capacity, its first processes would be replaced by the last ones
+            toAdd = processes.subList(processes.size() - reserved, processes.size());
+        } else if (overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT) {
+            toAdd = new ArrayList<>(processes.subList(0, reserved));
+            for (Process process : processes.subList(reserved, processes.size())) {
+                Optional<Process> victim;
+                while ((victim = oldestLessImportantThan(process.getPriority())).isPresent()) {
+                    if (shardOf(victim.get().key()).removeKeepingCapacity(victim.get())) {
+                        evicted.add(victim.get());
+                        toAdd.add(process);
+                        break;
+                    }
+                }
+            }
+        } else {
+            toAdd = processes.subList(0, reserved);
+        }
+        for (Process process : toAdd) {
+            shardOf(process.key()).link(process);
+        }
+        return List.copyOf(toAdd);
+    }
+
+    @Override
+    public Optional<Process> find(Object key) {
+        return shardOf(key).find(key);
+    }
+
+    @Override
+    public boolean remove(Process process) {
+        return shardOf(process.key()).remove(process);
+    }
+
+    @Override
+    public Optional<Process> remove(Object key) {
+        return shardOf(key).remove(key);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (PartitionedProcessStore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int count(Process.Priority priority) {
+        int count = 0;
+        for (PartitionedProcessStore shard : shards) {
+            count += shard.count(priority);
+        }
+        return count;
+    }
+
+    @Override
+    public long version() {
+        long version = 0;
+        for (PartitionedProcessStore shard : shards) {
+            version += shard.version();
+        }
+        return version;
+    }
+
+    @Override
+    public Iterator<Process> iterator() {
+        var iterators = new ArrayList<Iterator<Process>>(shards.length);
+        for (PartitionedProcessStore shard : shards) {
+            iterators.add(shard.iterator());
+        }
+        return new MergingIterator(iterators);
+    }
+
+    @Override
+    public int lanes() {
+        return shards.length;
+    }
+
+    @Override
+    public int laneOf(Process process) {
+        return shardIndex(process.key());
+    }
+
+    /**
+     * merges iterators of shards, every shard continues after its own process
+     */
+    @Override
+    public Iterator<Process> iterator(Process.Priority priority, Process[] after) {
+        var iterators = new ArrayList<Iterator<Process>>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            iterators.add(shards[i].iterator(priority, new Process[]{after[i]}));
+        }
+        return new MergingIterator(iterators);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity.limit();
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity.limit(capacity);
+    }
+
+    /**
+     * victims are looked up in all shards one by one, only monitor of the victim partition is held for its removal
+     */
+    @Override
+    public List<Process> removeSurplus(ProcessManager.OverflowStrategy overflowStrategy, int max) {
+        var removed = new ArrayList<Process>();
+        while (removed.size() < max && capacity.surplus() > 0) {
+            var victim = overflowStrategy == ProcessManager.OverflowStrategy.REMOVE_OLDEST
+                    ? oldest() : leastImportant();
+            if (victim.isEmpty()) {
+                break;
+            }
+            if (shardOf(victim.get().key()).remove(victim.get())) {
+                removed.add(victim.get());
+            }
+        }
+        return removed;
+    }
+
+    private Optional<Process> leastImportant() {
+        return oldestBelow(Process.Priority.LEVELS);
+    }
+
+    /**
+     * the oldest process of the least important level below given one which has processes in any shard, levels
+     * are taken from bitmaps of shards, so only occupied levels are checked
+     */
+    private Optional<Process> oldestBelow(int below) {
+        var from = 0;
+        while (true) {
+            var level = -1;
+            for (PartitionedProcessStore shard : shards) {
+                var lowest = shard.lowestLevel(from);
+                if (lowest != -1 && (level == -1 || lowest < level)) {
+                    level = lowest;
+                }
+            }
+            if (level == -1 || level >= below) {
+                return Optional.empty();
+            }
+            var oldest = oldest(Process.Priority.of(level));
+            if (oldest.isPresent()) {
+                return oldest;
+            }
+            // level was emptied concurrently
+            from = level + 1;
+        }
+    }
+
+    @Override
+    public Optional<Process> oldest(Process.Priority priority) {
+        Process oldest = null;
+        for (PartitionedProcessStore shard : shards) {
+            var head = shard.head(priority);
+            if (head != null && (oldest == null || head.sequence < oldest.sequence)) {
+                oldest = head;
+            }
+        }
+        return Optional.ofNullable(oldest);
+    }
+
+    @Override
+    public Optional<Process> oldest() {
+        Process oldest = null;
+        for (int attempt = 0; attempt < PartitionedProcessStore.OLDEST_ATTEMPTS; attempt++) {
+            var started = sequence.get();
+            oldest = null;
+            for (PartitionedProcessStore shard : shards) {
+                var head = shard.oldestHead();
+                if (head != null && (oldest == null || head.sequence < oldest.sequence)) {
+                    oldest = head;
+                }
+            }
+            if (oldest == null || oldest.sequence < started) {
+                break;
+            }
+        }
+        return Optional.ofNullable(oldest);
+    }
+
+    @Override
+    public Optional<Process> oldestLessImportantThan(Process.Priority priority) {
+        return oldestBelow(priority.getLevel());
+    }
+
+    @Override
+    public List<Process> detachAll() {
+        var detached = new Process[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            detached[i] = shards[i].detachAll().toArray(new Process[0]);
+        }
+        return PartitionedProcessStore.merge(detached);
+    }
+
+    @Override
+    public List<Process> detachAll(Process.Priority priority) {
+        var detached = new Process[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            detached[i] = shards[i].detachAll(priority).toArray(new Process[0]);
+        }
+        return PartitionedProcessStore.merge(detached);
+    }
+
+    @Override
+    public List<Process> snapshot() {
+        var copies = new Process[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            copies[i] = shards[i].snapshot().toArray(new Process[0]);
+        }
+        return PartitionedProcessStore.merge(copies);
+    }
+
+    private PartitionedProcessStore shardOf(Object key) {
+        return shards[shardIndex(key)];
+    }
+
+    private int shardIndex(Object key) {
+        var hash = key.hashCode();
+        // spreads higher bits, so sequential ids go round robin and text ids still use all bits
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shards.length);
+    }
+
+    /**
+     * merges iterators ordered by sequence
+     */
+    private static final class MergingIterator implements Iterator<Process> {
+        private final List<Iterator<Process>> iterators;
+        private final Process[] heads;
+
+        private MergingIterator(List<Iterator<Process>> iterators) {
+            this.iterators = iterators;
+            this.heads = new Process[iterators.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = iterators.get(i).hasNext() ? iterators.get(i).next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Process head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Process next() {
+            int oldest = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (oldest == -1 || heads[i].sequence < heads[oldest].sequence)) {
+                    oldest = i;
+                }
+            }
+            if (oldest == -1) {
+                throw new NoSuchElementException();
+            }
+            var result = heads[oldest];
+            heads[oldest] = iterators.get(oldest).hasNext() ? iterators.get(oldest).next() : null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.pawele;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * OS process of a process read from {@link OffHeapProcessStore}. Only its pid and start time are stored, the OS is
+ * asked for the process when the handle is used (killing), not every time the process is read.
+ * - process whose pid was reused by another process after it exited is not found, so the other one is not killed
+ * - process whose start time was not known when it was added is found by its pid only
+ * - process which is not found behaves like an exited one
+ */
+final class StoredProcessHandle implements ProcessHandle {
+
+    static final long UNKNOWN_START = Long.MIN_VALUE;
+
+    private static final Info NO_INFO = new NoInfo();
+
+    private final long pid;
+    private final long start;
+    private volatile Optional<ProcessHandle> resolved;
+
+    /**
+     * @param start start of OS process in epoch milliseconds, {@link #UNKNOWN_START} when it is not known
+     */
+    StoredProcessHandle(long pid, long start) {
+        this.pid = pid;
+        this.start = start;
+    }
+
+    /**
+     * @return start in epoch milliseconds, {@link #UNKNOWN_START} when the OS does not tell it
+     */
+    static long startOf(ProcessHandle handle) {
+        return handle.info().startInstant().map(Instant::toEpochMilli).orElse(UNKNOWN_START);
+    }
+
+    private Optional<ProcessHandle> resolve() {
+        var current = resolved;
+        if (current == null) {
+            current = ProcessHandle.of(pid).filter(handle -> start == UNKNOWN_START || startOf(handle) == start);
+            resolved = current;
+        }
+        return current;
+    }
+
+    @Override
+    public long pid() {
+        return pid;
+    }
+
+    @Override
+    public Optional<ProcessHandle> parent() {
+        return resolve().flatMap(ProcessHandle::parent);
+    }
+
+    @Override
+    public Stream<ProcessHandle> children() {
+        return resolve().map(ProcessHandle::children).orElseGet(Stream::empty);
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+        return resolve().map(ProcessHandle::descendants).orElseGet(Stream::empty);
+    }
+
+    @Override
+    public Info info() {
+        return resolve().map(ProcessHandle::info).orElse(NO_INFO);
+    }
+
+    @Override
+    public CompletableFuture<ProcessHandle> onExit() {
+        return resolve()
+                .map(handle -> handle.onExit().thenApply(exited -> (ProcessHandle) this))
+                .orElseGet(() -> CompletableFuture.completedFuture(this));
+    }
+
+    @Override
+    public boolean supportsNormalTermination() {
+        return resolve().map(ProcessHandle::supportsNormalTermination).orElse(false);
+    }
+
+    @Override
+    public boolean destroy() {
+        return resolve().map(ProcessHandle::destroy).orElse(false);
+    }
+
+    @Override
+    public boolean destroyForcibly() {
+        return resolve().map(ProcessHandle::destroyForcibly).orElse(false);
+    }
+
+    @Override
+    public boolean isAlive() {
+        return resolve().map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    @Override
+    public int compareTo(ProcessHandle other) {
+        return Long.compare(pid, other.pid());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        var that = (StoredProcessHandle) o;
+        return pid == that.pid && start == that.start;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(pid);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(pid);
+    }
+
+    private static final class NoInfo implements Info {
+        @Override
+        public Optional<String> command() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> commandLine() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String[]> arguments() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<Instant> startInstant() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<Duration> totalCpuDuration() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> user() {
+            return Optional.empty();
+        }
+    }
+}
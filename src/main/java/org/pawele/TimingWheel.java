@@ -0,0 +1,203 @@
+package org.pawele;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel of process deadlines, time is counted in ticks.
+ * - every level has 64 slots, slot of level n spans 64^n ticks, so 4 levels cover 64^4 ticks, timers further away
+ *   wait in the last slot they fit in and are placed again when wheel gets there
+ * - timers are kept in doubly linked lists of slots, so scheduling and cancelling is O(1)
+ * - when time gets to slot of a higher level its timers are cascaded to lower levels, so every timer moves at most
+ *   once per level before it expires
+ * - ticking is needed only while there are timers, {@link #schedule} tells when it has to be started
+ * - timer is found through its process, for storages which hand out copies of processes it is found by key
+ */
+class TimingWheel {
+
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 4;
+    private static final int MASK = SLOTS - 1;
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final long originNanos;
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    // timers by key of their process, null when processes are not copied
+    private final Map<Object, Timer> byKey;
+    private long currentTick;
+    // written under lock, read without it to skip cancelling when there are no timers
+    private volatile int size;
+    private boolean ticking;
+
+    TimingWheel(long tickNanos, long originNanos) {
+        this(tickNanos, originNanos, false);
+    }
+
+    /**
+     * @param copies whether processes removed from storage are copies of scheduled ones
+     */
+    TimingWheel(long tickNanos, long originNanos, boolean copies) {
+        this.tickNanos = tickNanos;
+        this.originNanos = originNanos;
+        this.byKey = copies ? new HashMap<>() : null;
+    }
+
+    long tickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} when process expires, it is rounded up to the next tick
+     * @return true when wheel was not ticking and caller has to start it
+     */
+    synchronized boolean schedule(Process process, long deadlineNanos) {
+        var elapsed = deadlineNanos - originNanos;
+        var deadline = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        // current slot was already expired
+        var timer = new Timer(process, Math.max(deadline, currentTick + 1));
+        process.timer = timer;
+        if (byKey != null) {
+            byKey.put(process.key(), timer);
+        }
+        place(timer);
+        size++;
+        if (!ticking) {
+            ticking = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * processes without timer are skipped without locking, copy of a process is matched to its timer by key and
+     * sequence
+     */
+    void cancel(Process process) {
+        if (process.timer == null && (byKey == null || size == 0)) {
+            return;
+        }
+        synchronized (this) {
+            var timer = process.timer;
+            if (timer == null && byKey != null) {
+                timer = byKey.get(process.key());
+                if (timer != null && timer.process.sequence != process.sequence) {
+                    timer = null;
+                }
+            }
+            if (timer != null) {
+                unlink(timer);
+                timer.process.timer = null;
+                if (byKey != null) {
+                    byKey.remove(timer.process.key(), timer);
+                }
+                size--;
+            }
+        }
+    }
+
+    /**
+     * moves time forward tick by tick, when there are no timers left it jumps to now at once
+     *
+     * @return processes which expired, ordered by tick of their deadline
+     */
+    synchronized List<Process> advance(long nowNanos) {
+        var now = (nowNanos - originNanos) / tickNanos;
+        var expired = new ArrayList<Process>();
+        while (currentTick < now && size > 0) {
+            currentTick++;
+            for (int level = 1; level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+                cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & MASK));
+            }
+            var slot = (int) (currentTick & MASK);
+            var timer = slots[0][slot];
+            slots[0][slot] = null;
+            for (; timer != null; timer = timer.next) {
+                timer.process.timer = null;
+                if (byKey != null) {
+                    byKey.remove(timer.process.key(), timer);
+                }
+                expired.add(timer.process);
+                size--;
+            }
+        }
+        if (size == 0) {
+            currentTick = Math.max(currentTick, now);
+        }
+        return expired;
+    }
+
+    /**
+     * @return false when there are no timers left, ticking stops then and next {@link #schedule} starts it again
+     */
+    synchronized boolean keepTicking() {
+        if (size == 0) {
+            ticking = false;
+        }
+        return ticking;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slot) {
+        var timer = slots[level][slot];
+        slots[level][slot] = null;
+        while (timer != null) {
+            var next = timer.next;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * level is chosen by distance to the deadline and slot by bits of the deadline of that level, timers due
+     * in the current tick go to the current slot of the lowest level
+     */
+    private void place(Timer timer) {
+        var delay = Math.min(timer.deadline - currentTick, MAX_DELAY);
+        var deadline = currentTick + delay;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        var slot = (int) ((deadline >>> (SLOT_BITS * level)) & MASK);
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slots[level][slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        slots[level][slot] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+    }
+
+    static final class Timer {
+        private final Process process;
+        private final long deadline;
+        private Timer prev;
+        private Timer next;
+        private int level;
+        private int slot;
+
+        private Timer(Process process, long deadline) {
+            this.process = process;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -3,7 +3,11 @@ package org.pawele;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -124,6 +128,52 @@ abstract class BaseProcessManagerTest {
         );
     }
 
+    @Test
+    void findShouldReturnProcessWithGivenId() {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var found = manager.find(process2.get().getId());
+
+        //then
+        Assertions.assertThat(found).containsSame(process2.get());
+        Assertions.assertThat(manager.find(UUID.randomUUID().toString())).isEmpty();
+    }
+
+    @Test
+    void deleteByIdShouldRemoveProcess() {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var deleted = manager.delete(process2.get().getId());
+
+        //then
+        Assertions.assertThat(deleted).isTrue();
+        Assertions.assertThat(manager.find(process2.get().getId())).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process1.get(), process3.get());
+    }
+
+    @Test
+    void deleteByNotExistingIdShouldReturnFalse() {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var deleted = manager.delete(UUID.randomUUID().toString());
+
+        //then
+        Assertions.assertThat(deleted).isFalse();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process1.get());
+    }
+
     @Test
     void deleteAllShouldReturnTrueIfThereWereProcesses() {
         //given
@@ -191,5 +241,226 @@ abstract class BaseProcessManagerTest {
         Assertions.assertThat(atLeastOneDeleted).isFalse();
     }
 
+    @Test
+    void deleteByGroupShouldReleaseCapacityAndIds() {
+        //given
+        var manager = createManager(3);
+        var low1 = manager.addProcess(Process.Priority.LOW);
+        var high = manager.addProcess(Process.Priority.HIGH);
+        var low2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.deleteAllProcessesWithPriority(Process.Priority.LOW);
+        var newLow1 = manager.addProcess(Process.Priority.LOW);
+        var newLow2 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(manager.find(low1.get().getId())).isEmpty();
+        Assertions.assertThat(manager.delete(low2.get())).isFalse();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                high.get(),
+                newLow1.get(),
+                newLow2.get()
+        );
+    }
+
+    @Test
+    void batchShouldBeAddedWhenThereIsRemainingCapacity() {
+        //given
+        var manager = createManager(4);
+        var process = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var result = manager.addProcesses(List.of(Process.Priority.LOW, Process.Priority.HIGH, Process.Priority.MEDIUM));
+
+        //then
+        Assertions.assertThat(result.getEvicted()).isEmpty();
+        Assertions.assertThat(result.getAdded()).extracting(Process::getPriority).containsExactly(
+                Process.Priority.LOW,
+                Process.Priority.HIGH,
+                Process.Priority.MEDIUM
+        );
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process.get(),
+                result.getAdded().get(0),
+                result.getAdded().get(1),
+                result.getAdded().get(2)
+        );
+        Assertions.assertThat(manager.find(result.getAdded().get(1).getId())).containsSame(result.getAdded().get(1));
+    }
+
+    @Test
+    void batchWithNullPriorityWillThrowAnException() {
+        var manager = createManager(2);
+
+        Assertions.assertThatThrownBy(() -> manager.addProcesses(Arrays.asList(Process.Priority.LOW, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Process priority must be not null");
+        Assertions.assertThat(manager.getProcesses()).isEmpty();
+    }
+
+    @Test
+    void countersShouldFollowAddsAndDeletes() {
+        //given
+        var manager = createManager(4);
+        var low = manager.addProcess(Process.Priority.LOW);
+        manager.addProcess(Process.Priority.HIGH);
+        manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        manager.delete(low.get());
+
+        //then
+        Assertions.assertThat(manager.size()).isEqualTo(2);
+        Assertions.assertThat(manager.count(Process.Priority.HIGH)).isEqualTo(2);
+        Assertions.assertThat(manager.count(Process.Priority.MEDIUM)).isZero();
+        Assertions.assertThat(manager.count(Process.Priority.LOW)).isZero();
+    }
+
+    @Test
+    void streamShouldReturnProcessesInInsertionOrder() {
+        //given
+        var manager = createManager(4);
+        var process1 = manager.addProcess(Process.Priority.MEDIUM);
+        var process2 = manager.addProcess(Process.Priority.HIGH);
+        var process3 = manager.addProcess(Process.Priority.LOW);
+        manager.delete(process2.get());
+
+        //when
+        var processes = manager.stream().collect(Collectors.toList());
+
+        //then
+        Assertions.assertThat(processes).containsExactly(process1.get(), process3.get());
+    }
+
+    @Test
+    void snapshotShouldBeReusedUntilProcessesChange() {
+        //given
+        var manager = createManager(4);
+        var process1 = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        var snapshot1 = manager.getSnapshot();
+        var snapshot2 = manager.getSnapshot();
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var snapshot3 = manager.getSnapshot();
+
+        //then
+        Assertions.assertThat(snapshot2).isSameAs(snapshot1);
+        Assertions.assertThat(snapshot1).containsExactly(process1.get());
+        Assertions.assertThat(snapshot3).containsExactly(process1.get(), process2.get());
+        Assertions.assertThatThrownBy(() -> snapshot3.add(process1.get()))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void queryShouldFilterAndOrderByPriority() {
+        //given
+        var manager = createManager(6);
+        var low1 = manager.addProcess(Process.Priority.LOW);
+        var high1 = manager.addProcess(Process.Priority.HIGH);
+        manager.addProcess(Process.Priority.MEDIUM);
+        var low2 = manager.addProcess(Process.Priority.LOW);
+        var high2 = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var page = manager.query(ProcessQuery.builder()
+                .priorities(Process.Priority.LOW, Process.Priority.HIGH)
+                .orderBy(ProcessQuery.Order.PRIORITY)
+                .limit(10)
+                .build());
+
+        //then
+        Assertions.assertThat(page.getProcesses()).containsExactly(high1.get(), high2.get(), low1.get(), low2.get());
+        Assertions.assertThat(page.getNextCursor()).isEmpty();
+    }
+
+    @Test
+    void queryShouldContinueFromCursor() {
+        //given
+        var manager = createManager(8);
+        var processes = manager.addProcesses(List.of(
+                Process.Priority.LOW, Process.Priority.HIGH, Process.Priority.MEDIUM, Process.Priority.LOW,
+                Process.Priority.HIGH, Process.Priority.MEDIUM, Process.Priority.LOW
+        )).getAdded();
+
+        //when
+        var first = manager.query(ProcessQuery.builder().limit(3).build());
+        manager.delete(processes.get(4));
+        var second = manager.query(ProcessQuery.builder().after(first.getNextCursor().get()).limit(3).build());
+
+        //then
+        Assertions.assertThat(first.getProcesses()).containsExactlyElementsOf(processes.subList(0, 3));
+        Assertions.assertThat(second.getProcesses()).containsExactly(
+                processes.get(3),
+                processes.get(5),
+                processes.get(6)
+        );
+        Assertions.assertThat(second.getNextCursor()).isEmpty();
+    }
+
+    @Test
+    void queryInPriorityOrderShouldContinueFromCursorWithOffset() {
+        //given
+        var manager = createManager(8);
+        var processes = manager.addProcesses(List.of(
+                Process.Priority.LOW, Process.Priority.HIGH, Process.Priority.MEDIUM, Process.Priority.LOW,
+                Process.Priority.HIGH, Process.Priority.MEDIUM, Process.Priority.LOW
+        )).getAdded();
+        var query = ProcessQuery.builder().orderBy(ProcessQuery.Order.PRIORITY).limit(3);
+
+        //when
+        var first = manager.query(query.build());
+        var second = manager.query(query.after(first.getNextCursor().get()).offset(1).build());
+
+        //then
+        Assertions.assertThat(first.getProcesses()).containsExactly(
+                processes.get(1),
+                processes.get(4),
+                processes.get(2)
+        );
+        Assertions.assertThat(second.getProcesses()).containsExactly(
+                processes.get(0),
+                processes.get(3),
+                processes.get(6)
+        );
+    }
+
+    @Test
+    void processesShouldBeStampedInOrderOfAdding() throws InterruptedException {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        Thread.sleep(20);
+
+        //when
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(process1.get().getSequence()).isLessThan(process2.get().getSequence());
+        Assertions.assertThat(process1.get().getAge()).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+        Assertions.assertThat(process1.get().getAge()).isGreaterThan(process2.get().getAge());
+        Assertions.assertThat(process1.get().getCreatedAt()).isBefore(process2.get().getCreatedAt());
+    }
+
+    @Test
+    void processesWithNumericPrioritiesShouldBeKeptByLevel() {
+        //given
+        var manager = createManager(3);
+        var process200 = manager.addProcess(Process.Priority.of(200));
+        manager.addProcess(Process.Priority.of(7));
+        var high = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var deleted = manager.deleteAllProcessesWithPriority(Process.Priority.of(7));
+
+        //then
+        Assertions.assertThat(deleted).isTrue();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process200.get(), high.get());
+        Assertions.assertThat(manager.count(Process.Priority.of(200))).isEqualTo(1);
+        Assertions.assertThat(manager.count(Process.Priority.of(7))).isZero();
+        Assertions.assertThat(manager.getProcesses().get(0).getPriority()).isSameAs(Process.Priority.of(200));
+    }
+
     protected abstract ProcessManager createManager(int capacity);
 }
@@ -0,0 +1,137 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class ChangeFeedTest {
+
+    @Test
+    void subscriberShouldReadChangesPublishedAfterSubscribing() {
+        //given
+        var feed = new ChangeFeed(8);
+        feed.publish(ProcessChange.Type.ADDED, new Process(Process.Priority.LOW, 1), null);
+        var subscription = new ChangeSubscription(feed, ChangeSubscription.SlowConsumerPolicy.DROP);
+        var process = new Process(Process.Priority.HIGH, 2);
+
+        //when
+        feed.publish(ProcessChange.Type.ADDED, process, null);
+        feed.publish(ProcessChange.Type.EVICTED, process, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        var changes = poll(subscription, 10);
+
+        //then
+        Assertions.assertThat(changes).extracting(ProcessChange::getType)
+                .containsExactly(ProcessChange.Type.ADDED, ProcessChange.Type.EVICTED);
+        Assertions.assertThat(changes).extracting(ProcessChange::getPosition).containsExactly(1L, 2L);
+        Assertions.assertThat(changes.get(1).getProcess()).isSameAs(process);
+        Assertions.assertThat(changes.get(1).getOverflowStrategy()).contains(ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        Assertions.assertThat(subscription.getLag()).isZero();
+    }
+
+    @Test
+    void slowSubscriberShouldSkipOverwrittenChanges() {
+        //given
+        var feed = new ChangeFeed(4);
+        var subscription = new ChangeSubscription(feed, ChangeSubscription.SlowConsumerPolicy.DROP);
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            feed.publish(ProcessChange.Type.ADDED, new Process(Process.Priority.LOW, i), null);
+        }
+        var changes = poll(subscription, 10);
+
+        //then
+        Assertions.assertThat(changes).extracting(change -> change.getProcess().getNumericId())
+                .containsExactly(6L, 7L, 8L, 9L);
+        Assertions.assertThat(subscription.getMissed()).isEqualTo(6);
+    }
+
+    @Test
+    void overwrittenChangesShouldBeCoalescedIntoOne() {
+        //given
+        var feed = new ChangeFeed(4);
+        var subscription = new ChangeSubscription(feed, ChangeSubscription.SlowConsumerPolicy.COALESCE);
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            feed.publish(ProcessChange.Type.DELETED, new Process(Process.Priority.LOW, i), null);
+        }
+        var changes = poll(subscription, 10);
+
+        //then
+        Assertions.assertThat(changes).hasSize(5);
+        Assertions.assertThat(changes.get(0).getType()).isEqualTo(ProcessChange.Type.MISSED);
+        Assertions.assertThat(changes.get(0).getMissed()).isEqualTo(6);
+        Assertions.assertThat(changes.subList(1, 5)).extracting(ProcessChange::getPosition)
+                .containsExactly(6L, 7L, 8L, 9L);
+    }
+
+    @Test
+    void changesOfConcurrentPublishersShouldNotBeLostWhenTheyFit() throws Exception {
+        //given
+        var feed = new ChangeFeed(4096);
+        var subscription = new ChangeSubscription(feed, ChangeSubscription.SlowConsumerPolicy.DROP);
+        var executor = Executors.newFixedThreadPool(4);
+        var start = new CountDownLatch(1);
+
+        //when
+        for (int thread = 0; thread < 4; thread++) {
+            var first = thread * 1000;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = first; i < first + 1000; i++) {
+                    feed.publish(ProcessChange.Type.ADDED, new Process(Process.Priority.LOW, i), null);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        var changes = poll(subscription, 5000);
+
+        //then
+        var ids = new HashSet<Long>();
+        changes.forEach(change -> ids.add(change.getProcess().getNumericId()));
+        Assertions.assertThat(ids).hasSize(4000);
+        Assertions.assertThat(subscription.getMissed()).isZero();
+    }
+
+    @Test
+    void changeGivenUpByItsPublisherShouldBeSkippedAsMissed() {
+        //given
+        var feed = new ChangeFeed(2);
+        var subscription = new ChangeSubscription(feed, ChangeSubscription.SlowConsumerPolicy.COALESCE);
+        // first publisher is still writing when publisher of the next lap gets to its slot
+        var slow = feed.claim();
+        feed.take(slow);
+        feed.publish(ProcessChange.Type.ADDED, new Process(Process.Priority.LOW, 1), null);
+        feed.publish(ProcessChange.Type.ADDED, new Process(Process.Priority.LOW, 2), null);
+        feed.write(slow, ProcessChange.Type.ADDED, new Process(Process.Priority.LOW, 0), null);
+
+        //when
+        var changes = poll(subscription, 10);
+
+        //then
+        Assertions.assertThat(changes).extracting(ProcessChange::getType).containsExactly(
+                ProcessChange.Type.ADDED, ProcessChange.Type.ADDED, ProcessChange.Type.MISSED);
+        Assertions.assertThat(changes.get(2).getMissed()).isEqualTo(1);
+        Assertions.assertThat(subscription.getLag()).isZero();
+        Assertions.assertThat(subscription.getMissed()).isEqualTo(1);
+    }
+
+    private static List<ProcessChange> poll(ChangeSubscription subscription, int max) {
+        var changes = new ArrayList<ProcessChange>();
+        subscription.poll(changes::add, max);
+        return changes;
+    }
+}
@@ -4,6 +4,7 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
@@ -24,6 +25,40 @@ public class ExampleConcurrencyTest {
     void processManagerShouldWorkForManyThreads() throws ExecutionException, InterruptedException, TimeoutException {
         var capacity = 10;
         var processManager = new ProcessManager(capacity, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+
+        shouldKeepLastProcesses(processManager, capacity, 0);
+    }
+
+    @Test
+    void ringBufferProcessManagerShouldWorkForManyThreads() throws ExecutionException, InterruptedException, TimeoutException {
+        var capacity = 10;
+        var processManager = ProcessManager.builder()
+                .capacity(capacity)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .storage(ProcessManager.Storage.RING_BUFFER)
+                .build();
+
+        shouldKeepLastProcesses(processManager, capacity, 0);
+    }
+
+    @Test
+    void shardedProcessManagerShouldWorkForManyThreads() throws ExecutionException, InterruptedException, TimeoutException {
+        var capacity = 10;
+        var processManager = ProcessManager.builder()
+                .capacity(capacity)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .shards(4)
+                .build();
+
+        // heads of shards are not read atomically, victim may be newer than processes added during its search
+        shouldKeepLastProcesses(processManager, capacity, N_THREADS);
+    }
+
+    /**
+     * @param tolerance how many evicted processes may be newer than a kept one
+     */
+    private void shouldKeepLastProcesses(ProcessManager processManager, int capacity, int tolerance)
+            throws ExecutionException, InterruptedException, TimeoutException {
         var executorService = Executors.newFixedThreadPool(N_THREADS);
         var allCreatedProcesses = new ConcurrentLinkedQueue<Process>();
         var futures = new LinkedList<>();
@@ -49,13 +84,24 @@ public class ExampleConcurrencyTest {
         Assertions.assertThat(processManager.getProcesses()).hasSize(capacity);
         Assertions.assertThat(allCreatedProcesses).hasSize(9_999);
 
-        var lastProcesses = new ArrayList<>(allCreatedProcesses)
+        // order in which threads record created processes is not the order they were added in,
+        // so expected processes are taken by their sequence
+        var byAge = new ArrayList<>(allCreatedProcesses)
                 .stream()
-                .skip(9_999 - capacity)
+                .sorted(Comparator.comparingLong(Process::getSequence))
                 .collect(Collectors.toList());
+        var kept = processManager.getProcesses();
 
-        //it may be flaky
-        Assertions.assertThat(processManager.getProcesses()).containsExactlyInAnyOrderElementsOf(lastProcesses);
+        if(tolerance == 0){
+            Assertions.assertThat(kept).containsExactlyElementsOf(byAge.subList(9_999 - capacity, 9_999));
+            return;
+        }
+        var evicted = new ArrayList<>(byAge);
+        evicted.removeAll(kept);
+        for (Process process : kept) {
+            Assertions.assertThat(evicted).filteredOn(victim -> victim.getSequence() > process.getSequence())
+                    .hasSizeLessThanOrEqualTo(tolerance);
+        }
     }
 
 
@@ -0,0 +1,68 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+class IdGeneratorTest {
+
+    @Test
+    void sequenceShouldGenerateMonotonicNumericIds() {
+        var generator = IdGenerator.sequence();
+
+        var process1 = generator.create(Process.Priority.LOW);
+        var process2 = generator.create(Process.Priority.LOW);
+
+        Assertions.assertThat(process1.hasNumericId()).isTrue();
+        Assertions.assertThat(process1.getNumericId()).isEqualTo(1);
+        Assertions.assertThat(process2.getNumericId()).isEqualTo(2);
+        Assertions.assertThat(process2.getId()).isEqualTo("2");
+    }
+
+    @Test
+    void timeBasedShouldGenerateMonotonicIdsWithNodeId() {
+        var generator = IdGenerator.timeBased(7);
+        var ids = new HashSet<Long>();
+        long previous = 0;
+
+        for (int i = 0; i < 10_000; i++) {
+            var id = generator.create(Process.Priority.LOW).getNumericId();
+            Assertions.assertThat(id).isGreaterThan(previous);
+            Assertions.assertThat(id & IdGenerator.MAX_NODE).isEqualTo(7);
+            ids.add(id);
+            previous = id;
+        }
+
+        Assertions.assertThat(ids).hasSize(10_000);
+    }
+
+    @Test
+    void timeBasedShouldRejectTooBigNodeId() {
+        Assertions.assertThatThrownBy(() -> IdGenerator.timeBased(IdGenerator.MAX_NODE + 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Node id must be between 0 and 1023");
+    }
+
+    @Test
+    void uuidShouldGenerateTextIds() {
+        var process = IdGenerator.uuid().create(Process.Priority.LOW);
+
+        Assertions.assertThat(process.hasNumericId()).isFalse();
+        Assertions.assertThat(process.getId()).hasSize(36);
+    }
+
+    @Test
+    void managerShouldFindProcessesByIdOfAnyKind() {
+        var numericManager = ProcessManager.builder().capacity(2).idGenerator(IdGenerator.timeBased(1)).build();
+        var uuidManager = ProcessManager.builder().capacity(2).idGenerator(IdGenerator.uuid()).build();
+        var numeric = numericManager.addProcess(Process.Priority.LOW).get();
+        var uuid = uuidManager.addProcess(Process.Priority.LOW).get();
+
+        Assertions.assertThat(numericManager.find(numeric.getId())).containsSame(numeric);
+        Assertions.assertThat(numericManager.find(numeric.getNumericId())).containsSame(numeric);
+        Assertions.assertThat(uuidManager.find(uuid.getId())).containsSame(uuid);
+        Assertions.assertThat(numericManager.delete(numeric.getId())).isTrue();
+        Assertions.assertThat(numericManager.getProcesses()).isEmpty();
+    }
+}
@@ -0,0 +1,266 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+class OffHeapProcessManagerTest extends BaseProcessManagerTest {
+
+    @Override
+    protected ProcessManager createManager(int capacity) {
+        return createManager(capacity, ProcessManager.OverflowStrategy.SKIP);
+    }
+
+    private static ProcessManager createManager(int capacity, ProcessManager.OverflowStrategy overflowStrategy) {
+        return ProcessManager.builder()
+                .capacity(capacity)
+                .overflowStrategy(overflowStrategy)
+                .storage(ProcessManager.Storage.OFF_HEAP)
+                .build();
+    }
+
+    // processes are created again when they are read, so they are equal, but not the same
+    @Override
+    @Test
+    void findShouldReturnProcessWithGivenId() {
+        //given
+        var manager = createManager(3);
+        manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var found = manager.find(process2.get().getId());
+
+        //then
+        Assertions.assertThat(found).contains(process2.get());
+        Assertions.assertThat(manager.find(UUID.randomUUID().toString())).isEmpty();
+    }
+
+    @Override
+    @Test
+    void batchShouldBeAddedWhenThereIsRemainingCapacity() {
+        //given
+        var manager = createManager(4);
+        var process = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var result = manager.addProcesses(List.of(Process.Priority.LOW, Process.Priority.HIGH, Process.Priority.MEDIUM));
+
+        //then
+        Assertions.assertThat(result.getEvicted()).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process.get(),
+                result.getAdded().get(0),
+                result.getAdded().get(1),
+                result.getAdded().get(2)
+        );
+        Assertions.assertThat(manager.find(result.getAdded().get(1).getId())).contains(result.getAdded().get(1));
+    }
+
+    @Test
+    void processesReadFromStorageShouldBeEqualToAddedOnes() {
+        //given
+        var manager = createManager(3);
+        var process = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        var found = manager.find(process.get().getId());
+
+        //then
+        Assertions.assertThat(found).contains(process.get());
+        Assertions.assertThat(found.get()).isNotSameAs(process.get());
+        Assertions.assertThat(found.get().getPriority()).isEqualTo(Process.Priority.MEDIUM);
+        Assertions.assertThat(manager.delete(found.get())).isTrue();
+        Assertions.assertThat(manager.size()).isZero();
+    }
+
+    @Test
+    void oldestProcessShouldBeEvicted() {
+        //given
+        var manager = createManager(3, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        var process4 = manager.addProcess(Process.Priority.LOW);
+        var batch = manager.addProcesses(Process.Priority.HIGH, 1);
+
+        //then
+        Assertions.assertThat(batch.getEvicted()).containsExactly(process2.get());
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process3.get(),
+                process4.get(),
+                batch.getAdded().get(0)
+        );
+        Assertions.assertThat(manager.find(process1.get().getId())).isEmpty();
+    }
+
+    @Test
+    void slotsAndIndexShouldBeReusedAfterDeletes() {
+        //given
+        var manager = createManager(64, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        var expected = new ArrayList<Process>();
+
+        //when
+        for (int i = 0; i < 10_000; i++) {
+            var process = manager.addProcess(Process.Priority.values()[i % 3]).get();
+            expected.add(process);
+            if (i % 5 == 0) {
+                manager.delete(process.getId());
+                expected.remove(process);
+            }
+        }
+
+        //then
+        var kept = expected.subList(expected.size() - 64, expected.size());
+        Assertions.assertThat(manager.getProcesses()).containsExactlyElementsOf(kept);
+        for (Process process : kept) {
+            Assertions.assertThat(manager.find(process.getNumericId())).contains(process);
+        }
+    }
+
+    @Test
+    void iterationShouldContinueAfterCurrentProcessIsDeleted() {
+        //given
+        var manager = createManager(4);
+        var processes = manager.addProcesses(
+                List.of(Process.Priority.LOW, Process.Priority.LOW, Process.Priority.LOW, Process.Priority.HIGH)
+        ).getAdded();
+        var iterator = manager.iterator();
+
+        //when
+        var first = iterator.next();
+        var second = iterator.next();
+        manager.delete(second);
+        var rest = new ArrayList<Process>();
+        iterator.forEachRemaining(rest::add);
+
+        //then
+        Assertions.assertThat(List.of(first, second)).containsExactly(processes.get(0), processes.get(1));
+        Assertions.assertThat(rest).containsExactly(processes.get(2), processes.get(3));
+    }
+
+    @Test
+    void textIdsWillThrowAnException() {
+        var manager = ProcessManager.builder()
+                .capacity(1)
+                .storage(ProcessManager.Storage.OFF_HEAP)
+                .idGenerator(IdGenerator.uuid())
+                .build();
+
+        Assertions.assertThatThrownBy(() -> manager.addProcess(Process.Priority.LOW))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Off-heap storage supports only numeric ids");
+    }
+
+    @Test
+    void capacityShouldBeLoweredAndRaisedBackUpToInitialOne() {
+        //given
+        var manager = createManager(3, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        manager.setCapacity(1);
+        manager.setCapacity(3);
+        var process4 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process3.get(), process4.get());
+        Assertions.assertThat(manager.find(process2.get().getId())).isEmpty();
+        Assertions.assertThatThrownBy(() -> manager.setCapacity(4))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Off-heap storage cannot grow above initial capacity 3");
+    }
+
+    @Test
+    void processWhosePidWasReusedShouldNotBeKilled() {
+        //given
+        var manager = createManager(1, ProcessManager.OverflowStrategy.SKIP);
+        // pid of running JVM, but start time of the process which had it before
+        var current = ProcessHandle.current();
+        var reused = (ProcessHandle) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ProcessHandle.class}, (proxy, method, args) -> {
+                    if(method.getName().equals("info")){
+                        return startedAt(current.info().startInstant().orElseThrow().minusSeconds(60));
+                    }
+                    return method.invoke(current, args);
+                });
+        var process = manager.addProcess(Process.Priority.LOW, reused);
+
+        //when
+        var found = manager.find(process.get().getId());
+
+        //then
+        Assertions.assertThat(found).isPresent();
+        Assertions.assertThat(found.get().getHandle().map(ProcessHandle::pid)).contains(current.pid());
+        Assertions.assertThat(found.get().getHandle().get().isAlive()).isFalse();
+        Assertions.assertThat(found.get().getHandle().get().destroy()).isFalse();
+    }
+
+    @Test
+    void processHandleShouldNotBeAliveAfterItsProcessExited() throws Exception {
+        //given
+        var manager = createManager(1, ProcessManager.OverflowStrategy.SKIP);
+        var exited = new ProcessBuilder("true").start();
+        exited.waitFor();
+        var process = manager.addProcess(Process.Priority.LOW, exited.toHandle());
+
+        //when
+        var found = manager.find(process.get().getId());
+
+        //then
+        Assertions.assertThat(found.get().getHandle().get().isAlive()).isFalse();
+        Assertions.assertThat(found.get().getHandle().get().onExit()).isCompleted();
+    }
+
+    @Test
+    void processHandleShouldBeFoundWhileItsProcessRuns() {
+        //given
+        var manager = createManager(1, ProcessManager.OverflowStrategy.SKIP);
+        var process = manager.addProcess(Process.Priority.LOW, ProcessHandle.current());
+
+        //when
+        var found = manager.find(process.get().getId());
+
+        //then
+        Assertions.assertThat(found.get().getHandle().map(ProcessHandle::pid)).contains(ProcessHandle.current().pid());
+        Assertions.assertThat(found.get().getHandle().get().isAlive()).isTrue();
+    }
+
+    @Test
+    void processWithUnknownStartShouldBeKilledByPid() throws Exception {
+        //given
+        var manager = createManager(1, ProcessManager.OverflowStrategy.SKIP);
+        var running = new ProcessBuilder("sleep", "60").start();
+        var unknownStart = (ProcessHandle) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ProcessHandle.class}, (proxy, method, args) -> {
+                    if(method.getName().equals("info")){
+                        return startedAt(null);
+                    }
+                    return method.invoke(running.toHandle(), args);
+                });
+        var process = manager.addProcess(Process.Priority.LOW, unknownStart);
+
+        //when
+        manager.delete(process.get());
+
+        //then
+        Assertions.assertThat(running.waitFor(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static ProcessHandle.Info startedAt(Instant start) {
+        return (ProcessHandle.Info) Proxy.newProxyInstance(OffHeapProcessManagerTest.class.getClassLoader(),
+                new Class<?>[]{ProcessHandle.Info.class}, (proxy, method, args) ->
+                        method.getName().equals("startInstant") ? Optional.ofNullable(start) : Optional.empty());
+    }
+}
@@ -0,0 +1,42 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PriorityBitmapTest {
+
+    @Test
+    void occupiedLevelsShouldBeFoundAcrossWords() {
+        //given
+        var bitmap = new PriorityBitmap();
+        bitmap.set(255);
+        bitmap.set(64);
+        bitmap.set(63);
+        bitmap.set(130);
+
+        //when
+        bitmap.clear(63);
+
+        //then
+        Assertions.assertThat(bitmap.next(0)).isEqualTo(64);
+        Assertions.assertThat(bitmap.next(65)).isEqualTo(130);
+        Assertions.assertThat(bitmap.next(131)).isEqualTo(255);
+        Assertions.assertThat(bitmap.next(256)).isEqualTo(-1);
+        Assertions.assertThat(bitmap.isSet(63)).isFalse();
+        Assertions.assertThat(bitmap.isSet(130)).isTrue();
+    }
+
+    @Test
+    void lowestLevelShouldBeFoundOnlyBelowGivenLevel() {
+        //given
+        var bitmap = new PriorityBitmap();
+
+        //when
+        bitmap.set(100);
+
+        //then
+        Assertions.assertThat(bitmap.lowestBelow(101)).isEqualTo(100);
+        Assertions.assertThat(bitmap.lowestBelow(100)).isEqualTo(-1);
+        Assertions.assertThat(new PriorityBitmap().lowestBelow(256)).isEqualTo(-1);
+    }
+}
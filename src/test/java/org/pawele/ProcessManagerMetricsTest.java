@@ -0,0 +1,90 @@
+package org.pawele;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+
+class ProcessManagerMetricsTest {
+
+    @Test
+    void addsRejectionsAndDeletesShouldBeCounted() {
+        //given
+        var manager = new ProcessManager(2);
+        var process = manager.addProcess(Process.Priority.LOW);
+        manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.addProcess(Process.Priority.HIGH);
+        manager.delete(process.get().getId());
+        manager.deleteAll();
+
+        //then
+        var metrics = manager.getMetrics();
+        Assertions.assertThat(metrics.getAdded()).isEqualTo(2);
+        Assertions.assertThat(metrics.getRejected()).isEqualTo(1);
+        Assertions.assertThat(metrics.getEvicted()).isZero();
+        Assertions.assertThat(metrics.getDeleted()).isEqualTo(2);
+        Assertions.assertThat(metrics.getAddLatency().getCount()).isEqualTo(3);
+        Assertions.assertThat(metrics.getDeleteLatency().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictionsAndRetriesShouldBeCounted() {
+        //given
+        var manager = new ProcessManager(1, ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT);
+        manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.addProcess(Process.Priority.HIGH);
+        manager.addProcesses(Process.Priority.HIGH, 1);
+
+        //then
+        var metrics = manager.getMetrics();
+        Assertions.assertThat(metrics.getAdded()).isEqualTo(2);
+        Assertions.assertThat(metrics.getEvicted()).isEqualTo(1);
+        Assertions.assertThat(metrics.getRejected()).isEqualTo(1);
+        Assertions.assertThat(metrics.getAddRetries()).isEqualTo(1);
+    }
+
+    @Test
+    void histogramShouldApproximatePercentiles() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        Assertions.assertThat(histogram.getCount()).isEqualTo(100);
+        Assertions.assertThat(histogram.getMaxNanos()).isEqualTo(100_000);
+        Assertions.assertThat(histogram.getPercentileNanos(50)).isBetween(50_000L, 2 * 50_000L);
+        Assertions.assertThat(histogram.getPercentileNanos(100)).isEqualTo(100_000);
+        Assertions.assertThat(new LatencyHistogram().getPercentileNanos(99)).isZero();
+    }
+
+    @Test
+    void evictionShouldBeRecordedAsJfrEvent() throws Exception {
+        //given
+        var manager = new ProcessManager(1, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        var oldest = manager.addProcess(Process.Priority.MEDIUM);
+        var file = Files.createTempFile("evictions", ".jfr");
+
+        //when
+        try (var recording = new Recording()) {
+            recording.enable("org.pawele.Eviction");
+            recording.start();
+            manager.addProcess(Process.Priority.LOW);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        //then
+        var events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        Assertions.assertThat(events).hasSize(1);
+        Assertions.assertThat(events.get(0).getString("processId")).isEqualTo(oldest.get().getId());
+        Assertions.assertThat(events.get(0).getString("priority")).isEqualTo("MEDIUM");
+        Assertions.assertThat(events.get(0).getString("overflowStrategy")).isEqualTo("REMOVE_OLDEST");
+    }
+}
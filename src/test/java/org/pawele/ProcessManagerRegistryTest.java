@@ -0,0 +1,173 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class ProcessManagerRegistryTest {
+
+    @Test
+    void managerShouldBeCreatedOnceForTenant() {
+        //given
+        var registry = ProcessManagerRegistry.builder().capacity(10).tenantCapacity(2).build();
+
+        //when
+        var manager = registry.manager("a");
+        manager.addProcesses(Process.Priority.LOW, 3);
+
+        //then
+        Assertions.assertThat(registry.manager("a")).isSameAs(manager);
+        Assertions.assertThat(registry.manager("b")).isNotSameAs(manager);
+        Assertions.assertThat(registry.find("c")).isEmpty();
+        Assertions.assertThat(manager.size()).isEqualTo(2);
+        Assertions.assertThat(registry.tenants()).isEqualTo(2);
+        Assertions.assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    void budgetShouldBeSharedByTenants() {
+        //given
+        var registry = ProcessManagerRegistry.builder().capacity(3).tenantCapacity(2).build();
+        registry.manager("a").addProcesses(Process.Priority.LOW, 2);
+        registry.manager("b").addProcess(Process.Priority.LOW);
+
+        //when
+        var rejected = registry.manager("b").addProcess(Process.Priority.HIGH);
+        registry.manager("a").delete(registry.manager("a").getProcesses().get(0));
+        var added = registry.manager("b").addProcess(Process.Priority.HIGH);
+
+        //then
+        Assertions.assertThat(rejected).isEmpty();
+        Assertions.assertThat(added).isPresent();
+        Assertions.assertThat(registry.size()).isEqualTo(3);
+    }
+
+    @Test
+    void oldestProcessOfAnyTenantShouldBeEvictedWhenBudgetIsUsedUp() {
+        //given
+        var registry = ProcessManagerRegistry.builder()
+                .capacity(3)
+                .tenantCapacity(2)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .build();
+        var a1 = registry.manager("a").addProcess(Process.Priority.HIGH);
+        var b1 = registry.manager("b").addProcess(Process.Priority.LOW);
+        var a2 = registry.manager("a").addProcess(Process.Priority.LOW);
+
+        //when
+        var b2 = registry.manager("b").addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(b2).isPresent();
+        Assertions.assertThat(registry.manager("a").getProcesses()).containsExactly(a2.get());
+        Assertions.assertThat(registry.manager("b").getProcesses()).containsExactly(b1.get(), b2.get());
+        Assertions.assertThat(registry.manager("a").getMetrics().getEvicted()).isEqualTo(1);
+        Assertions.assertThat(a1.get().getSequence()).isLessThan(b1.get().getSequence());
+    }
+
+    @Test
+    void lessImportantProcessOfOtherTenantShouldBeEvicted() {
+        //given
+        var registry = ProcessManagerRegistry.builder()
+                .capacity(3)
+                .tenantCapacity(3)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT)
+                .build();
+        var medium = registry.manager("a").addProcess(Process.Priority.MEDIUM);
+        var low = registry.manager("a").addProcess(Process.Priority.LOW);
+        var high = registry.manager("b").addProcess(Process.Priority.HIGH);
+
+        //when
+        var newMedium = registry.manager("b").addProcess(Process.Priority.MEDIUM);
+        var rejected = registry.manager("b").addProcess(Process.Priority.MEDIUM);
+
+        //then
+        Assertions.assertThat(newMedium).isPresent();
+        Assertions.assertThat(rejected).isEmpty();
+        Assertions.assertThat(registry.manager("a").getProcesses()).containsExactly(medium.get());
+        Assertions.assertThat(registry.manager("b").getProcesses()).containsExactly(high.get(), newMedium.get());
+        Assertions.assertThat(registry.manager("a").find(low.get().getId())).isEmpty();
+    }
+
+    @Test
+    void emptyIdleManagersShouldBeRemoved() {
+        //given
+        var registry = ProcessManagerRegistry.builder()
+                .capacity(3)
+                .tenantCapacity(2)
+                .idleTimeout(Duration.ZERO)
+                .build();
+        var idle = registry.manager("a");
+        var busy = registry.manager("b");
+        busy.addProcess(Process.Priority.LOW);
+
+        //when
+        registry.removeIdle();
+
+        //then
+        Assertions.assertThat(registry.find("a")).isEmpty();
+        Assertions.assertThat(registry.find("b")).contains(busy);
+        Assertions.assertThat(registry.manager("a")).isNotSameAs(idle);
+        Assertions.assertThat(registry.manager("a").addProcess(Process.Priority.LOW)).isPresent();
+    }
+
+    @Test
+    void addingIntoKeptManagerRemovedAsIdleWillThrowAnException() {
+        //given
+        var registry = ProcessManagerRegistry.builder()
+                .capacity(3)
+                .tenantCapacity(2)
+                .idleTimeout(Duration.ZERO)
+                .build();
+        var kept = registry.manager("a");
+        registry.removeIdle();
+
+        //when //then
+        Assertions.assertThatThrownBy(() -> kept.addProcess(Process.Priority.LOW))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Manager was removed from its registry as idle, it has to be asked for again");
+        Assertions.assertThatThrownBy(() -> kept.addProcesses(Process.Priority.LOW, 2))
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThatThrownBy(() -> kept.addProcessAsync(Process.Priority.LOW, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(kept.size()).isZero();
+        Assertions.assertThat(registry.manager("a").addProcess(Process.Priority.LOW)).isPresent();
+    }
+
+    @Test
+    void retiredManagerShouldBeReplacedWhenItIsAskedFor() {
+        //given
+        var registry = ProcessManagerRegistry.builder()
+                .capacity(3)
+                .tenantCapacity(2)
+                .build();
+        var retired = registry.manager("a");
+        retired.retire();
+
+        //when
+        var manager = registry.manager("a");
+
+        //then
+        Assertions.assertThat(manager).isNotSameAs(retired);
+        Assertions.assertThat(registry.find("a")).contains(manager);
+        Assertions.assertThat(manager.addProcess(Process.Priority.LOW)).isPresent();
+    }
+
+    @Test
+    void invalidRegistryWillThrowAnException() {
+        Assertions.assertThatThrownBy(() -> ProcessManagerRegistry.builder().tenantCapacity(1).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Capacity must be positive");
+        Assertions.assertThatThrownBy(() -> ProcessManagerRegistry.builder().capacity(1).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Tenant capacity must be positive");
+        Assertions.assertThatThrownBy(() -> ProcessManagerRegistry.builder()
+                        .capacity(1)
+                        .tenantCapacity(1)
+                        .overflowStrategy(ProcessManager.OverflowStrategy.BLOCK)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Registry supports SKIP, REMOVE_OLDEST and REMOVE_OLDEST_LESS_IMPORTANT overflow strategies");
+    }
+}
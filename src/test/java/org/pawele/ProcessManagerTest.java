@@ -3,6 +3,9 @@ package org.pawele;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ProcessManagerTest extends BaseProcessManagerTest{
@@ -17,10 +20,150 @@ class ProcessManagerTest extends BaseProcessManagerTest{
         Assertions.assertThat(process2).isEmpty();
     }
 
+    @Test
+    void processesOfBatchWhichDoNotFitWillBeSkipped() {
+        var manager = new ProcessManager(3);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+
+        var result = manager.addProcesses(Process.Priority.HIGH, 3);
+
+        Assertions.assertThat(result.getAdded()).hasSize(2);
+        Assertions.assertThat(result.getEvicted()).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process1.get(),
+                result.getAdded().get(0),
+                result.getAdded().get(1)
+        );
+    }
+
+    @Test
+    void processShouldBeDeletedWhenItsTimeToLiveElapses() throws InterruptedException {
+        //given
+        var manager = new ProcessManager(2);
+        var expiring = manager.addProcess(Process.Priority.HIGH, null, Duration.ofMillis(50));
+        var process = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (manager.size() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        //then
+        Assertions.assertThat(expiring).isPresent();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process.get());
+        Assertions.assertThat(manager.getMetrics().getExpired()).isEqualTo(1);
+        Assertions.assertThat(manager.addProcess(Process.Priority.LOW)).isPresent();
+    }
+
+    @Test
+    void deletedProcessShouldNotExpire() throws InterruptedException {
+        //given
+        var manager = new ProcessManager(2);
+        var process = manager.addProcess(Process.Priority.HIGH, null, Duration.ofMillis(20));
+
+        //when
+        manager.delete(process.get());
+        Thread.sleep(100);
+
+        //then
+        Assertions.assertThat(manager.getMetrics().getExpired()).isZero();
+        Assertions.assertThat(manager.getMetrics().getDeleted()).isEqualTo(1);
+    }
+
+    @Test
+    void negativeTimeToLiveWillThrowAnException() {
+        var manager = new ProcessManager(1);
+
+        Assertions.assertThatThrownBy(() -> manager.addProcess(Process.Priority.LOW, null, Duration.ofMillis(-1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Time to live must be not negative");
+    }
+
+    @Test
+    void queryWithCursorOfOtherOrderWillThrowAnException() {
+        var manager = new ProcessManager(3);
+        manager.addProcesses(Process.Priority.LOW, 3);
+        var cursor = manager.query(ProcessQuery.builder().limit(1).build()).getNextCursor().get();
+
+        Assertions.assertThatThrownBy(() -> ProcessQuery.builder()
+                        .orderBy(ProcessQuery.Order.PRIORITY)
+                        .after(cursor)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor was created by query with different order");
+        Assertions.assertThatThrownBy(() -> ProcessQuery.builder().limit(0).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be positive");
+    }
+
     @Override
     protected ProcessManager createManager(int capacity) {
         return new ProcessManager(capacity);
     }
 
+    @Test
+    void growingShouldAllowMoreProcesses() {
+        //given
+        var manager = createManager(1);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.setCapacity(2);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(process2).isPresent();
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process1.get(), process2.get());
+    }
+
+    @Test
+    void shrinkingWithSkipStrategyShouldKeepProcessesUntilTheyAreDeleted() {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.setCapacity(1);
+
+        //then
+        Assertions.assertThat(manager.size()).isEqualTo(3);
+        manager.delete(process1.get());
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isEmpty();
+        manager.delete(process2.get());
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isEmpty();
+        manager.delete(process3.get());
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isPresent();
+    }
+
+    @Test
+    void notPositiveCapacityWillThrowAnException() {
+        var manager = createManager(1);
+
+        Assertions.assertThatThrownBy(() -> manager.setCapacity(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Capacity must be positive");
+    }
+
+    @Test
+    void subscribingWithoutChangeFeedWillThrowAnException() {
+        var manager = createManager(1);
+
+        Assertions.assertThatThrownBy(() -> manager.subscribe(ChangeSubscription.SlowConsumerPolicy.DROP))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Change feed is not enabled");
+    }
 
+    @Test
+    void priorityOutsideOfLevelsWillThrowAnException() {
+        Assertions.assertThatThrownBy(() -> Process.Priority.of(256))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Priority level must be between 0 and 255");
+        Assertions.assertThatThrownBy(() -> Process.Priority.of(-1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Priority level must be between 0 and 255");
+    }
 }
@@ -0,0 +1,134 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class ProcessManagerWithBlockStrategyTest extends BaseProcessManagerTest {
+
+    @Override
+    protected ProcessManager createManager(int capacity) {
+        return new ProcessManager(capacity, ProcessManager.OverflowStrategy.BLOCK);
+    }
+
+    @Test
+    void blockedAddShouldContinueWhenProcessIsDeleted() throws Exception {
+        //given
+        var manager = createManager(1);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var blocked = CompletableFuture.supplyAsync(() -> manager.addProcess(Process.Priority.LOW));
+
+        //when
+        Thread.sleep(100);
+        Assertions.assertThat(blocked).isNotDone();
+        manager.delete(process1.get());
+
+        //then
+        var process2 = blocked.get(5, TimeUnit.SECONDS);
+        Assertions.assertThat(process2).isPresent();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process2.get());
+    }
+
+    @Test
+    void asyncAddShouldCompleteWhenCapacityIsReleased() {
+        //given
+        var manager = createManager(2);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var waiting = manager.addProcessAsync(Process.Priority.HIGH, Duration.ofSeconds(10));
+        Assertions.assertThat(waiting).isNotDone();
+        manager.delete(process1.get().getId());
+
+        //then
+        Assertions.assertThat(waiting).isCompleted();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process2.get(), waiting.join().get());
+    }
+
+    @Test
+    void asyncAddShouldCompleteWithEmptyWhenTimeoutElapses() {
+        //given
+        var manager = createManager(1);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var waiting = manager.addProcessAsync(Process.Priority.HIGH, Duration.ofMillis(50));
+
+        //then
+        Assertions.assertThat(waiting.join()).isEmpty();
+        manager.delete(process1.get());
+        Assertions.assertThat(manager.getProcesses()).isEmpty();
+        Assertions.assertThat(manager.getMetrics().getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void waitingProcessesShouldBeAddedByPriorityThenArrival() {
+        //given
+        var manager = createManager(1);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var low = manager.addProcessAsync(Process.Priority.LOW, Duration.ofSeconds(10));
+        var high1 = manager.addProcessAsync(Process.Priority.HIGH, Duration.ofSeconds(10));
+        var high2 = manager.addProcessAsync(Process.Priority.HIGH, Duration.ofSeconds(10));
+
+        //when
+        manager.delete(process1.get());
+
+        //then
+        Assertions.assertThat(high1).isCompleted();
+        Assertions.assertThat(high2).isNotDone();
+        Assertions.assertThat(low).isNotDone();
+
+        //when
+        manager.deleteAll();
+
+        //then
+        Assertions.assertThat(high2).isCompleted();
+        Assertions.assertThat(low).isNotDone();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(high2.join().get());
+    }
+
+    @Test
+    void newProcessShouldNotOvertakeWaitingOnes() {
+        //given
+        var manager = createManager(1);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var waiting = manager.addProcessAsync(Process.Priority.LOW, Duration.ofSeconds(10));
+        var later = manager.addProcessAsync(Process.Priority.LOW, Duration.ofSeconds(10));
+
+        //when
+        manager.delete(process1.get());
+
+        //then
+        Assertions.assertThat(waiting).isCompleted();
+        Assertions.assertThat(later).isNotDone();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(waiting.join().get());
+    }
+
+    @Test
+    void asyncAddWithNegativeTimeoutWillThrowAnException() {
+        var manager = createManager(1);
+
+        Assertions.assertThatThrownBy(() -> manager.addProcessAsync(Process.Priority.LOW, Duration.ofMillis(-1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Timeout must be not negative");
+    }
+
+    @Test
+    void waitingProcessShouldBeAddedWhenCapacityGrows() {
+        //given
+        var manager = createManager(1);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var waiting = manager.addProcessAsync(Process.Priority.HIGH, Duration.ofSeconds(10));
+
+        //when
+        manager.setCapacity(2);
+
+        //then
+        Assertions.assertThat(waiting).isCompleted();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process1.get(), waiting.join().get());
+    }
+}
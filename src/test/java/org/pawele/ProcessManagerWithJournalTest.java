@@ -0,0 +1,203 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class ProcessManagerWithJournalTest extends BaseProcessManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<ProcessManager> managers = new ArrayList<>();
+
+    @AfterEach
+    void closeManagers() {
+        managers.forEach(ProcessManager::close);
+    }
+
+    @Override
+    protected ProcessManager createManager(int capacity) {
+        try {
+            return open(Files.createTempDirectory(directory, "journal"), capacity, Journal.DEFAULT_SEGMENT_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void processesShouldBeRestoredInOrderAfterRestart() {
+        //given
+        var manager = open(directory, 5, Journal.DEFAULT_SEGMENT_SIZE);
+        var low = manager.addProcess(Process.Priority.LOW);
+        var high = manager.addProcess(Process.Priority.HIGH);
+        var medium = manager.addProcess(Process.Priority.MEDIUM);
+        var batch = manager.addProcesses(List.of(Process.Priority.LOW, Process.Priority.HIGH));
+        manager.delete(high.get());
+        manager.close();
+
+        //when
+        var restored = open(directory, 5, Journal.DEFAULT_SEGMENT_SIZE);
+
+        //then
+        Assertions.assertThat(describe(restored.getProcesses())).containsExactly(
+                describe(low.get()),
+                describe(medium.get()),
+                describe(batch.getAdded().get(0)),
+                describe(batch.getAdded().get(1))
+        );
+        Assertions.assertThat(restored.count(Process.Priority.HIGH)).isEqualTo(1);
+        Assertions.assertThat(restored.addProcess(Process.Priority.LOW).get().getNumericId())
+                .isGreaterThan(batch.getAdded().get(1).getNumericId());
+    }
+
+    @Test
+    void evictedProcessesShouldNotBeRestored() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(2)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .journal(directory)
+                .build();
+        manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.LOW);
+        manager.close();
+
+        //when
+        var restored = open(directory, 2, Journal.DEFAULT_SEGMENT_SIZE);
+
+        //then
+        Assertions.assertThat(describe(restored.getProcesses())).containsExactly(
+                describe(process2.get()),
+                describe(process3.get())
+        );
+    }
+
+    @Test
+    void journalShouldBeCompactedWhenSegmentIsFull() throws Exception {
+        //given
+        var manager = open(directory, 10, Journal.MIN_SEGMENT_SIZE);
+        var kept = manager.addProcess(Process.Priority.HIGH);
+        for (int i = 0; i < 20_000; i++) {
+            manager.delete(manager.addProcess(Process.Priority.LOW).get());
+        }
+        var last = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        var deadline = System.nanoTime() + 5_000_000_000L;
+        while (files("segment-").size() > 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        manager.close();
+        var restored = open(directory, 10, Journal.MIN_SEGMENT_SIZE);
+
+        //then
+        Assertions.assertThat(files("segment-").size()).isLessThanOrEqualTo(2);
+        Assertions.assertThat(files("snapshot-")).hasSize(1);
+        Assertions.assertThat(describe(restored.getProcesses())).containsExactly(
+                describe(kept.get()),
+                describe(last.get())
+        );
+    }
+
+    @Test
+    void failedSnapshotShouldBeCountedAndKeepOlderSegments() throws Exception {
+        //given
+        var manager = open(directory, 10, Journal.MIN_SEGMENT_SIZE);
+        // snapshot taken when the first segment is full cannot be written
+        Files.createDirectory(directory.resolve("snapshot-2.tmp"));
+
+        //when
+        for (int i = 0; i < 2_000; i++) {
+            manager.delete(manager.addProcess(Process.Priority.LOW).get());
+        }
+        var deadline = System.nanoTime() + 5_000_000_000L;
+        while (manager.getMetrics().getJournalFailures() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        //then
+        Assertions.assertThat(manager.getMetrics().getJournalFailures()).isEqualTo(1);
+        Assertions.assertThat(files("segment-")).contains("segment-1.log", "segment-2.log");
+    }
+
+    @Test
+    void changesOfClosedManagerWillThrowAnExceptionAndChangeNothing() {
+        //given
+        var manager = open(directory, 3, Journal.DEFAULT_SEGMENT_SIZE);
+        var kept = manager.addProcess(Process.Priority.LOW);
+        manager.close();
+
+        //when //then
+        Assertions.assertThatThrownBy(() -> manager.addProcess(Process.Priority.HIGH))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Manager is closed, its journal is not written anymore");
+        Assertions.assertThatThrownBy(() -> manager.addProcesses(Process.Priority.HIGH, 2))
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThatThrownBy(() -> manager.delete(kept.get()))
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThatThrownBy(manager::deleteAll)
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(describe(manager.getProcesses())).containsExactly(describe(kept.get()));
+        Assertions.assertThat(describe(open(directory, 3, Journal.DEFAULT_SEGMENT_SIZE).getProcesses()))
+                .containsExactly(describe(kept.get()));
+    }
+
+    @Test
+    void tooSmallSegmentWillThrowAnException() {
+        Assertions.assertThatThrownBy(() -> open(directory, 1, 1024))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Journal segment size must be at least " + Journal.MIN_SEGMENT_SIZE);
+    }
+
+    private ProcessManager open(Path directory, int capacity, int segmentSize) {
+        var manager = ProcessManager.builder()
+                .capacity(capacity)
+                .journal(directory)
+                .journalSegmentSize(segmentSize)
+                .build();
+        managers.add(manager);
+        return manager;
+    }
+
+    private List<String> files(String prefix) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void numericPrioritiesShouldBeRestored() {
+        //given
+        var manager = open(directory, 5, Journal.DEFAULT_SEGMENT_SIZE);
+        var process = manager.addProcess(Process.Priority.of(200));
+        manager.close();
+
+        //when
+        var restored = open(directory, 5, Journal.DEFAULT_SEGMENT_SIZE);
+
+        //then
+        Assertions.assertThat(describe(restored.getProcesses())).containsExactly(describe(process.get()));
+        Assertions.assertThat(restored.count(Process.Priority.of(200))).isEqualTo(1);
+    }
+
+    private static List<String> describe(List<Process> processes) {
+        return processes.stream().map(ProcessManagerWithJournalTest::describe).collect(Collectors.toList());
+    }
+
+    private static String describe(Process process) {
+        return process.getId() + ":" + process.getPriority();
+    }
+}
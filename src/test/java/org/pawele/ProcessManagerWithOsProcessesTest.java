@@ -0,0 +1,202 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+class ProcessManagerWithOsProcessesTest {
+
+    private final List<java.lang.Process> started = new ArrayList<>();
+
+    @AfterEach
+    void killStarted() {
+        started.forEach(java.lang.Process::destroyForcibly);
+    }
+
+    @Test
+    void deletedProcessShouldBeTerminated() throws Exception {
+        //given
+        var manager = new ProcessManager(2);
+        var sleep = start("sleep", "30");
+        var process = manager.addProcess(Process.Priority.LOW, sleep.toHandle());
+
+        //when
+        var deleted = manager.delete(process.get().getId());
+
+        //then
+        Assertions.assertThat(deleted).isTrue();
+        awaitExit(sleep, 5);
+    }
+
+    @Test
+    void evictedProcessShouldBeTerminated() throws Exception {
+        //given
+        var manager = new ProcessManager(1, ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+        var sleep = start("sleep", "30");
+        manager.addProcess(Process.Priority.HIGH, sleep.toHandle());
+
+        //when
+        manager.addProcess(Process.Priority.LOW);
+
+        //then
+        awaitExit(sleep, 5);
+    }
+
+    @Test
+    void processIgnoringTerminationShouldBeKilledAfterGracePeriod() throws Exception {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(1)
+                .killGracePeriod(Duration.ofMillis(200))
+                .build();
+        var stubborn = startIgnoringTermination();
+        var process = manager.addProcess(Process.Priority.LOW, stubborn.toHandle());
+
+        //when
+        manager.delete(process.get());
+
+        //then
+        awaitExit(stubborn, 5);
+    }
+
+    @Test
+    void processesOfPriorityShouldBeKilledInParallel() throws Exception {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(4)
+                .killGracePeriod(Duration.ofMillis(500))
+                .build();
+        var stubborn = new ArrayList<java.lang.Process>();
+        for (int i = 0; i < 4; i++) {
+            var process = startIgnoringTermination();
+            stubborn.add(process);
+            manager.addProcess(Process.Priority.LOW, process.toHandle());
+        }
+
+        //when
+        var start = System.nanoTime();
+        manager.deleteAllProcessesWithPriority(Process.Priority.LOW);
+        for (java.lang.Process process : stubborn) {
+            awaitExit(process, 5);
+        }
+
+        //then
+        Assertions.assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1_500));
+    }
+
+    @Test
+    void deletedProcessShouldBeKilledWithItsDescendants() throws Exception {
+        //given
+        var manager = new ProcessManager(1);
+        var parent = startWithChildren(false);
+        var process = manager.addProcess(Process.Priority.LOW, parent.toHandle());
+        var children = process.get().getDescendants().collect(Collectors.toList());
+
+        //when
+        manager.delete(process.get());
+
+        //then
+        Assertions.assertThat(children).hasSize(2);
+        awaitExit(parent, 5);
+        for (ProcessHandle child : children) {
+            child.onExit().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void processTreesOfPriorityShouldBeKilledInParallel() throws Exception {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(4)
+                .killGracePeriod(Duration.ofSeconds(2))
+                .killParallelism(2)
+                .build();
+        var members = new ArrayList<ProcessHandle>();
+        for (int i = 0; i < 4; i++) {
+            var parent = startWithChildren(true);
+            var process = manager.addProcess(Process.Priority.LOW, parent.toHandle());
+            members.add(parent.toHandle());
+            process.get().getDescendants().forEach(members::add);
+        }
+
+        //when
+        var start = System.nanoTime();
+        var deleted = manager.deleteAllProcessesWithPriority(Process.Priority.LOW);
+        for (ProcessHandle member : members) {
+            member.onExit().get(10, TimeUnit.SECONDS);
+        }
+
+        //then
+        Assertions.assertThat(deleted).isTrue();
+        Assertions.assertThat(members).hasSize(12).noneMatch(ProcessHandle::isAlive);
+        // one tree after another would take at least 4 grace periods, orphaned children are reaped with a delay
+        Assertions.assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(6_000));
+    }
+
+    /**
+     * shell with two sleeping children, when ignoring termination, children inherit it
+     */
+    private java.lang.Process startWithChildren(boolean ignoringTermination) throws IOException {
+        var trap = ignoringTermination ? "trap '' TERM; " : "";
+        var process = start("sh", "-c", trap + "sleep 30 & sleep 30 & echo ready; wait");
+        // wait until children are started
+        process.getInputStream().read();
+        return process;
+    }
+
+    private java.lang.Process startIgnoringTermination() throws IOException, InterruptedException {
+        var process = start("sh", "-c", "trap '' TERM; echo ready; exec sleep 30");
+        // wait until trap is set, otherwise signal could come first
+        process.getInputStream().read();
+        return process;
+    }
+
+    private java.lang.Process start(String... command) throws IOException {
+        var process = new ProcessBuilder(command).start();
+        started.add(process);
+        return process;
+    }
+
+    private void awaitExit(java.lang.Process process, int seconds)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        process.onExit().get(seconds, TimeUnit.SECONDS);
+        Assertions.assertThat(process.isAlive()).isFalse();
+    }
+
+    @Test
+    void exitOfKilledProcessShouldBePublished() throws Exception {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(1)
+                .changeFeed(16)
+                .build();
+        var subscription = manager.subscribe(ChangeSubscription.SlowConsumerPolicy.DROP);
+        var sleep = start("sleep", "30");
+        var process = manager.addProcess(Process.Priority.LOW, sleep.toHandle());
+
+        //when
+        manager.delete(process.get());
+        awaitExit(sleep, 5);
+
+        //then
+        var types = new ArrayList<ProcessChange.Type>();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (types.size() < 3 && System.nanoTime() < deadline) {
+            subscription.poll(change -> types.add(change.getType()), 10);
+        }
+        Assertions.assertThat(types).containsExactly(
+                ProcessChange.Type.ADDED,
+                ProcessChange.Type.DELETED,
+                ProcessChange.Type.KILLED
+        );
+    }
+}
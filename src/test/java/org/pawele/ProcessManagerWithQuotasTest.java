@@ -0,0 +1,194 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+class ProcessManagerWithQuotasTest extends BaseProcessManagerTest {
+
+    @Override
+    protected ProcessManager createManager(int capacity) {
+        return ProcessManager.builder()
+                .capacity(capacity)
+                .reserve(Process.Priority.HIGH, 0)
+                .quota(Process.Priority.LOW, capacity)
+                .build();
+    }
+
+    @Test
+    void reservedSlotsShouldBeKeptForTheirPriority() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(5)
+                .reserve(Process.Priority.HIGH, 2)
+                .build();
+
+        //when
+        var low = manager.addProcesses(Process.Priority.LOW, 5);
+        var high1 = manager.addProcess(Process.Priority.HIGH);
+        var high2 = manager.addProcess(Process.Priority.HIGH);
+
+        //then
+        Assertions.assertThat(low.getAdded()).hasSize(3);
+        Assertions.assertThat(high1).isPresent();
+        Assertions.assertThat(high2).isPresent();
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isEmpty();
+    }
+
+    @Test
+    void importantProcessWithReservedSlotShouldNotEvict() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(4)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT)
+                .reserve(Process.Priority.HIGH, 1)
+                .build();
+        var low = manager.addProcesses(Process.Priority.LOW, 3).getAdded();
+
+        //when
+        var rejected = manager.addProcess(Process.Priority.LOW);
+        var high = manager.addProcess(Process.Priority.HIGH);
+
+        //then
+        Assertions.assertThat(rejected).isEmpty();
+        Assertions.assertThat(high).isPresent();
+        Assertions.assertThat(manager.getMetrics().getEvicted()).isZero();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(low.get(0), low.get(1), low.get(2), high.get());
+    }
+
+    @Test
+    void onlyProcessesAboveReservedSlotsShouldBeEvicted() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(3)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT)
+                .reserve(Process.Priority.LOW, 1)
+                .build();
+        var low1 = manager.addProcess(Process.Priority.LOW);
+        var low2 = manager.addProcess(Process.Priority.LOW);
+        var medium = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        var high1 = manager.addProcess(Process.Priority.HIGH);
+        var high2 = manager.addProcess(Process.Priority.HIGH);
+        var high3 = manager.addProcess(Process.Priority.HIGH);
+
+        //then
+        Assertions.assertThat(high1).isPresent();
+        Assertions.assertThat(high2).isPresent();
+        Assertions.assertThat(high3).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(low2.get(), high1.get(), high2.get());
+        Assertions.assertThat(manager.find(low1.get().getId())).isEmpty();
+        Assertions.assertThat(manager.find(medium.get().getId())).isEmpty();
+    }
+
+    @Test
+    void priorityShouldNotExceedItsQuota() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(5)
+                .quota(Process.Priority.LOW, 2)
+                .build();
+
+        //when
+        var batch = manager.addProcesses(List.of(Process.Priority.LOW, Process.Priority.LOW, Process.Priority.LOW,
+                Process.Priority.MEDIUM));
+        var low = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(batch.getAdded()).extracting(Process::getPriority)
+                .containsExactly(Process.Priority.LOW, Process.Priority.LOW, Process.Priority.MEDIUM);
+        Assertions.assertThat(low).isEmpty();
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isPresent();
+        manager.delete(batch.getAdded().get(0));
+        Assertions.assertThat(manager.addProcess(Process.Priority.LOW)).isPresent();
+    }
+
+    @Test
+    void waiterBlockedByItsQuotaShouldNotHoldBackLessImportantWaiters() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(3)
+                .overflowStrategy(ProcessManager.OverflowStrategy.BLOCK)
+                .quota(Process.Priority.HIGH, 1)
+                .build();
+        manager.addProcess(Process.Priority.HIGH);
+        var low = manager.addProcess(Process.Priority.LOW);
+        manager.addProcess(Process.Priority.LOW);
+        var cappedHigh = manager.addProcessAsync(Process.Priority.HIGH, Duration.ofSeconds(10));
+        var waitingLow = manager.addProcessAsync(Process.Priority.LOW, Duration.ofSeconds(10));
+
+        //when
+        manager.delete(low.get());
+
+        //then
+        Assertions.assertThat(waitingLow).isCompleted();
+        Assertions.assertThat(waitingLow.join()).isPresent();
+        Assertions.assertThat(cappedHigh).isNotDone();
+        Assertions.assertThat(manager.count(Process.Priority.HIGH)).isEqualTo(1);
+    }
+
+    @Test
+    void oldestProcessWithTheSamePriorityShouldBeEvictedWhenQuotaIsReached() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(5)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .quota(Process.Priority.LOW, 2)
+                .build();
+        var high = manager.addProcess(Process.Priority.HIGH);
+        var low1 = manager.addProcess(Process.Priority.LOW);
+        var low2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var low3 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(manager.getProcesses()).containsExactly(high.get(), low2.get(), low3.get());
+        Assertions.assertThat(manager.find(low1.get().getId())).isEmpty();
+    }
+
+    @Test
+    void invalidQuotasWillThrowAnException() {
+        Assertions.assertThatThrownBy(() -> ProcessManager.builder()
+                        .capacity(2)
+                        .reserve(Process.Priority.HIGH, 2)
+                        .reserve(Process.Priority.LOW, 1)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Reserved slots must not exceed capacity");
+        Assertions.assertThatThrownBy(() -> ProcessManager.builder()
+                        .capacity(5)
+                        .reserve(Process.Priority.HIGH, 2)
+                        .quota(Process.Priority.HIGH, 1)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Quota of HIGH must not be lower than its reserved slots");
+        Assertions.assertThatThrownBy(() -> ProcessManager.builder()
+                        .capacity(5)
+                        .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                        .storage(ProcessManager.Storage.RING_BUFFER)
+                        .quota(Process.Priority.LOW, 1)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ring buffer storage cannot be used with priority quotas");
+        Assertions.assertThatThrownBy(() -> ProcessManager.builder().capacity(5).quota(Process.Priority.LOW, 0).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Quota must be positive");
+    }
+
+    @Test
+    void capacityCannotBeLoweredBelowReservedSlots() {
+        var manager = ProcessManager.builder()
+                .capacity(5)
+                .reserve(Process.Priority.HIGH, 3)
+                .build();
+
+        Assertions.assertThatThrownBy(() -> manager.setCapacity(2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Reserved slots must not exceed capacity");
+        Assertions.assertThat(manager.getCapacity()).isEqualTo(5);
+    }
+}
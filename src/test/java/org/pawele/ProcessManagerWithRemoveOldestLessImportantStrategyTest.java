@@ -3,6 +3,8 @@ package org.pawele;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ProcessManagerWithRemoveOldestLessImportantStrategyTest extends BaseProcessManagerTest {
@@ -173,4 +175,72 @@ class ProcessManagerWithRemoveOldestLessImportantStrategyTest extends BaseProces
                 process1.get()
         );
     }
+
+    @Test
+    void lessImportantProcessesAreEvictedForBatch() {
+        //given
+        var manager = new ProcessManager(4, ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT);
+        var process1 = manager.addProcess(Process.Priority.MEDIUM);
+        var process2 = manager.addProcess(Process.Priority.HIGH);
+        var process3 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var result = manager.addProcesses(List.of(
+                Process.Priority.HIGH,
+                Process.Priority.MEDIUM,
+                Process.Priority.MEDIUM,
+                Process.Priority.HIGH
+        ));
+
+        //then
+        Assertions.assertThat(result.getEvicted()).containsExactly(process3.get(), process1.get());
+        Assertions.assertThat(result.getAdded()).extracting(Process::getPriority).containsExactly(
+                Process.Priority.HIGH,
+                Process.Priority.MEDIUM,
+                Process.Priority.HIGH
+        );
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process2.get(),
+                result.getAdded().get(0),
+                result.getAdded().get(1),
+                result.getAdded().get(2)
+        );
+    }
+
+    @Test
+    void shrinkingShouldEvictLeastImportantProcessesFirst() {
+        //given
+        var manager = createManager(4);
+        var low = manager.addProcess(Process.Priority.LOW);
+        var high1 = manager.addProcess(Process.Priority.HIGH);
+        var medium1 = manager.addProcess(Process.Priority.MEDIUM);
+        var medium2 = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        manager.setCapacity(2);
+
+        //then
+        Assertions.assertThat(manager.getProcesses()).containsExactly(high1.get(), medium2.get());
+        Assertions.assertThat(manager.find(low.get().getId())).isEmpty();
+        Assertions.assertThat(manager.find(medium1.get().getId())).isEmpty();
+    }
+
+    @Test
+    void processOfTheLowestLevelBelowNewProcessWillBeRemoved() {
+        //given
+        var manager = new ProcessManager(3, ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT);
+        var process10 = manager.addProcess(Process.Priority.of(10));
+        var process3 = manager.addProcess(Process.Priority.of(3));
+        var process200 = manager.addProcess(Process.Priority.of(200));
+
+        //when
+        var process5 = manager.addProcess(Process.Priority.of(5));
+        var process4 = manager.addProcess(Process.Priority.of(4));
+
+        //then
+        Assertions.assertThat(process5).isPresent();
+        Assertions.assertThat(process4).isEmpty();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process10.get(), process200.get(), process5.get());
+        Assertions.assertThat(manager.find(process3.get().getId())).isEmpty();
+    }
 }
@@ -3,6 +3,9 @@ package org.pawele;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ProcessManagerWithRemoveOldestStrategyTest extends BaseProcessManagerTest{
@@ -21,4 +24,130 @@ class ProcessManagerWithRemoveOldestStrategyTest extends BaseProcessManagerTest{
         Assertions.assertThat(process1).isPresent();
         Assertions.assertThat(process2).isPresent();
         Assertions.assertThat(manager.getProcesses()).containsExactly(process2.get());
-    }}
+    }
+
+    @Test
+    void oldestProcessIsRemovedRegardlessOfItsPriority() {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.MEDIUM);
+        var process2 = manager.addProcess(Process.Priority.HIGH);
+        var process3 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var newProcess = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(process1).isPresent();
+        Assertions.assertThat(newProcess).isPresent();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process2.get(),
+                process3.get(),
+                newProcess.get()
+        );
+    }
+
+    @Test
+    void oldestProcessesAreEvictedForBatch() {
+        //given
+        var manager = createManager(3);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.MEDIUM);
+
+        //when
+        var result = manager.addProcesses(Process.Priority.LOW, 2);
+
+        //then
+        Assertions.assertThat(result.getEvicted()).containsExactly(process1.get(), process2.get());
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                process3.get(),
+                result.getAdded().get(0),
+                result.getAdded().get(1)
+        );
+    }
+
+    @Test
+    void onlyLastProcessesOfBatchBiggerThanCapacityAreAdded() {
+        //given
+        var manager = createManager(2);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var result = manager.addProcesses(List.of(Process.Priority.LOW, Process.Priority.MEDIUM, Process.Priority.HIGH));
+
+        //then
+        Assertions.assertThat(result.getEvicted()).containsExactly(process1.get());
+        Assertions.assertThat(result.getAdded()).extracting(Process::getPriority).containsExactly(
+                Process.Priority.MEDIUM,
+                Process.Priority.HIGH
+        );
+        Assertions.assertThat(manager.getProcesses()).containsExactlyElementsOf(result.getAdded());
+    }
+
+    @Test
+    void shrinkingShouldEvictOldestProcesses() {
+        //given
+        var manager = createManager(4);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+        var process3 = manager.addProcess(Process.Priority.MEDIUM);
+        var process4 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.setCapacity(2);
+        var process5 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(manager.getCapacity()).isEqualTo(2);
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process4.get(), process5.get());
+        Assertions.assertThat(manager.find(process1.get().getId())).isEmpty();
+        Assertions.assertThat(manager.find(process2.get().getId())).isEmpty();
+        Assertions.assertThat(manager.find(process3.get().getId())).isEmpty();
+        Assertions.assertThat(manager.getMetrics().getEvicted()).isEqualTo(3);
+    }
+
+    @Test
+    void shrinkingShouldEvictSurplusInBatches() {
+        //given
+        var manager = createManager(2 * ProcessManager.SHRINK_BATCH + 10);
+        var processes = manager.addProcesses(Process.Priority.MEDIUM, 2 * ProcessManager.SHRINK_BATCH + 10).getAdded();
+
+        //when
+        manager.setCapacity(5);
+
+        //then
+        Assertions.assertThat(manager.getProcesses()).containsExactlyElementsOf(
+                processes.subList(processes.size() - 5, processes.size())
+        );
+    }
+
+    @Test
+    void subscriberShouldSeeAddsEvictionsAndDeletes() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(2)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .changeFeed(16)
+                .build();
+        var subscription = manager.subscribe(ChangeSubscription.SlowConsumerPolicy.DROP);
+        var process1 = manager.addProcess(Process.Priority.LOW);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var process3 = manager.addProcess(Process.Priority.HIGH);
+        manager.delete(process2.get());
+        var changes = new ArrayList<ProcessChange>();
+        subscription.poll(changes::add, 10);
+
+        //then
+        Assertions.assertThat(changes).extracting(ProcessChange::toString).containsExactly(
+                "ADDED(" + process1.get().getId() + ")",
+                "ADDED(" + process2.get().getId() + ")",
+                "EVICTED(" + process1.get().getId() + ")",
+                "ADDED(" + process3.get().getId() + ")",
+                "DELETED(" + process2.get().getId() + ")"
+        );
+        Assertions.assertThat(changes.get(2).getOverflowStrategy()).contains(ProcessManager.OverflowStrategy.REMOVE_OLDEST);
+    }
+}
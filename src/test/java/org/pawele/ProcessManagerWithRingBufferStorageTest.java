@@ -0,0 +1,81 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ProcessManagerWithRingBufferStorageTest extends BaseProcessManagerTest {
+
+    @Override
+    protected ProcessManager createManager(int capacity) {
+        return ProcessManager.builder()
+                .capacity(capacity)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .storage(ProcessManager.Storage.RING_BUFFER)
+                .build();
+    }
+
+    @Test
+    void ringBufferStorageSupportsOnlyRemoveOldestStrategy() {
+        Assertions.assertThatThrownBy(() -> ProcessManager.builder()
+                        .capacity(1)
+                        .storage(ProcessManager.Storage.RING_BUFFER)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ring buffer storage supports only REMOVE_OLDEST overflow strategy");
+    }
+
+    @Test
+    void oldestProcessIsReplaced() {
+        //given
+        var manager = createManager(2);
+        var process1 = manager.addProcess(Process.Priority.HIGH);
+        var process2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        var process3 = manager.addProcess(Process.Priority.LOW);
+        var process4 = manager.addProcess(Process.Priority.MEDIUM);
+
+        //then
+        Assertions.assertThat(process1).isPresent();
+        Assertions.assertThat(process2).isPresent();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(process3.get(), process4.get());
+        Assertions.assertThat(manager.find(process1.get().getId())).isEmpty();
+    }
+
+    /**
+     * removed slots are reused only when claim sequence reaches them, so the oldest process is replaced
+     * even though there is a free slot
+     */
+    @Test
+    @Override
+    void deleteByGroupShouldReleaseCapacityAndIds() {
+        //given
+        var manager = createManager(3);
+        var low1 = manager.addProcess(Process.Priority.LOW);
+        var high = manager.addProcess(Process.Priority.HIGH);
+        var low2 = manager.addProcess(Process.Priority.LOW);
+
+        //when
+        manager.deleteAllProcessesWithPriority(Process.Priority.LOW);
+        var newLow1 = manager.addProcess(Process.Priority.LOW);
+        var newLow2 = manager.addProcess(Process.Priority.LOW);
+
+        //then
+        Assertions.assertThat(manager.find(low1.get().getId())).isEmpty();
+        Assertions.assertThat(manager.delete(low2.get())).isFalse();
+        Assertions.assertThat(high).isPresent();
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                newLow1.get(),
+                newLow2.get()
+        );
+    }
+
+    @Test
+    void resizingWillThrowAnException() {
+        var manager = createManager(2);
+
+        Assertions.assertThatThrownBy(() -> manager.setCapacity(3))
+                .isInstanceOf(UnsupportedOperationException.class)
+                .hasMessage("Ring buffer storage cannot be resized");
+    }
+}
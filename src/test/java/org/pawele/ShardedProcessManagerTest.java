@@ -0,0 +1,123 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class ShardedProcessManagerTest extends BaseProcessManagerTest {
+
+    @Override
+    protected ProcessManager createManager(int capacity) {
+        return ProcessManager.builder()
+                .capacity(capacity)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST_LESS_IMPORTANT)
+                .shards(4)
+                .build();
+    }
+
+    @Test
+    void capacityShouldBeSharedByShards() {
+        //given
+        var manager = ProcessManager.builder().capacity(3).shards(4).build();
+
+        //when
+        var result = manager.addProcesses(Process.Priority.LOW, 5);
+
+        //then
+        Assertions.assertThat(result.getAdded()).hasSize(3);
+        Assertions.assertThat(manager.addProcess(Process.Priority.HIGH)).isEmpty();
+        Assertions.assertThat(manager.size()).isEqualTo(3);
+    }
+
+    @Test
+    void globallyOldestProcessShouldBeEvicted() {
+        //given
+        var manager = ProcessManager.builder()
+                .capacity(4)
+                .overflowStrategy(ProcessManager.OverflowStrategy.REMOVE_OLDEST)
+                .shards(4)
+                .build();
+        var processes = manager.addProcesses(Process.Priority.MEDIUM, 4).getAdded();
+
+        //when
+        var newProcess = manager.addProcess(Process.Priority.LOW);
+        var batch = manager.addProcesses(Process.Priority.HIGH, 2);
+
+        //then
+        Assertions.assertThat(batch.getEvicted()).containsExactly(processes.get(1), processes.get(2));
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                processes.get(3),
+                newProcess.get(),
+                batch.getAdded().get(0),
+                batch.getAdded().get(1)
+        );
+    }
+
+    @Test
+    void oldestLessImportantProcessShouldBeEvictedFromAnyShard() {
+        //given
+        var manager = createManager(4);
+        var medium = manager.addProcess(Process.Priority.MEDIUM);
+        var low1 = manager.addProcess(Process.Priority.LOW);
+        var low2 = manager.addProcess(Process.Priority.LOW);
+        var high = manager.addProcess(Process.Priority.HIGH);
+
+        //when
+        var newProcesses = manager.addProcesses(List.of(Process.Priority.MEDIUM, Process.Priority.HIGH));
+
+        //then
+        Assertions.assertThat(newProcesses.getEvicted()).containsExactly(low1.get(), low2.get());
+        Assertions.assertThat(manager.getProcesses()).containsExactly(
+                medium.get(),
+                high.get(),
+                newProcesses.getAdded().get(0),
+                newProcesses.getAdded().get(1)
+        );
+    }
+
+    @Test
+    void pagesShouldCoverAllProcessesInCreationOrder() {
+        //given
+        var manager = createManager(1000);
+        for (int i = 0; i < 1000; i++) {
+            manager.addProcess(Process.Priority.values()[i * 7 % 3]);
+        }
+
+        //when
+        var read = new ArrayList<Process>();
+        var page = manager.query(ProcessQuery.builder().priorities(Process.Priority.LOW, Process.Priority.HIGH).build());
+        read.addAll(page.getProcesses());
+        while (page.getNextCursor().isPresent()) {
+            page = manager.query(ProcessQuery.builder()
+                    .priorities(Process.Priority.LOW, Process.Priority.HIGH)
+                    .after(page.getNextCursor().get())
+                    .build());
+            read.addAll(page.getProcesses());
+        }
+
+        //then
+        Assertions.assertThat(read).containsExactlyElementsOf(manager.stream()
+                .filter(process -> process.getPriority() != Process.Priority.MEDIUM)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shrinkingShouldEvictLeastImportantProcessesOfAllShards() {
+        //given
+        var manager = createManager(6);
+        var high = manager.addProcesses(Process.Priority.HIGH, 2).getAdded();
+        var low = manager.addProcesses(Process.Priority.LOW, 2).getAdded();
+        var medium = manager.addProcesses(Process.Priority.MEDIUM, 2).getAdded();
+
+        //when
+        manager.setCapacity(3);
+
+        //then
+        Assertions.assertThat(manager.getProcesses()).containsExactly(high.get(0), high.get(1), medium.get(1));
+        Assertions.assertThat(manager.find(low.get(0).getId())).isEmpty();
+        Assertions.assertThat(manager.addProcess(Process.Priority.LOW)).isEmpty();
+    }
+}
@@ -0,0 +1,125 @@
+package org.pawele;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void processShouldExpireInTickOfItsDeadline() {
+        //given
+        var wheel = new TimingWheel(TICK, 0);
+        var process = new Process(Process.Priority.LOW, 1);
+        wheel.schedule(process, 25);
+
+        //when
+        var beforeDeadline = wheel.advance(29);
+        var afterDeadline = wheel.advance(30);
+
+        //then
+        Assertions.assertThat(beforeDeadline).isEmpty();
+        Assertions.assertThat(afterDeadline).containsExactly(process);
+        Assertions.assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void processesShouldExpireAcrossAllLevels() {
+        //given
+        var wheel = new TimingWheel(TICK, 0);
+        var deadlines = new long[]{1, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 300_000, 16_777_215, 20_000_000};
+        var processes = new ArrayList<Process>();
+        for (int i = 0; i < deadlines.length; i++) {
+            var process = new Process(Process.Priority.LOW, i);
+            processes.add(process);
+            wheel.schedule(process, deadlines[i] * TICK);
+        }
+
+        //when
+        var expired = new ArrayList<Process>();
+        var expiredAt = new ArrayList<Long>();
+        for (long tick = 1; wheel.size() > 0; tick++) {
+            for (Process process : wheel.advance(tick * TICK)) {
+                expired.add(process);
+                expiredAt.add(tick);
+            }
+        }
+
+        //then
+        Assertions.assertThat(expired).containsExactlyElementsOf(processes);
+        Assertions.assertThat(expiredAt).containsExactly(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L, 262_143L, 262_144L,
+                300_000L, 16_777_215L, 20_000_000L);
+    }
+
+    @Test
+    void cancelledProcessShouldNotExpire() {
+        //given
+        var wheel = new TimingWheel(TICK, 0);
+        var cancelled = new Process(Process.Priority.LOW, 1);
+        var other = new Process(Process.Priority.LOW, 2);
+        wheel.schedule(cancelled, 5_000);
+        wheel.schedule(other, 5_000);
+
+        //when
+        wheel.cancel(cancelled);
+        var expired = wheel.advance(5_000);
+
+        //then
+        Assertions.assertThat(expired).containsExactly(other);
+    }
+
+    @Test
+    void processWithPastDeadlineShouldExpireInNextTick() {
+        //given
+        var wheel = new TimingWheel(TICK, 0);
+        wheel.advance(100);
+        var process = new Process(Process.Priority.LOW, 1);
+
+        //when
+        wheel.schedule(process, 50);
+
+        //then
+        Assertions.assertThat(wheel.advance(109)).isEmpty();
+        Assertions.assertThat(wheel.advance(110)).isEqualTo(List.of(process));
+    }
+
+    @Test
+    void onlyFirstScheduleShouldStartTickingUntilWheelIsEmpty() {
+        var wheel = new TimingWheel(TICK, 0);
+
+        Assertions.assertThat(wheel.schedule(new Process(Process.Priority.LOW, 1), 10)).isTrue();
+        Assertions.assertThat(wheel.schedule(new Process(Process.Priority.LOW, 2), 20)).isFalse();
+        wheel.advance(10);
+        Assertions.assertThat(wheel.keepTicking()).isTrue();
+        wheel.advance(20);
+        Assertions.assertThat(wheel.keepTicking()).isFalse();
+        Assertions.assertThat(wheel.schedule(new Process(Process.Priority.LOW, 3), 30)).isTrue();
+    }
+
+    @Test
+    void copyOfProcessShouldCancelTimerOfItsOriginal() {
+        //given
+        var wheel = new TimingWheel(TICK, 0, true);
+        var process = new Process(Process.Priority.LOW, 1);
+        process.stamp(7);
+        wheel.schedule(process, 25);
+        var copy = new Process(Process.Priority.LOW, 1);
+        copy.sequence = 7;
+        var reusedId = new Process(Process.Priority.LOW, 1);
+        reusedId.sequence = 8;
+
+        //when
+        wheel.cancel(reusedId);
+        var sizeAfterReusedId = wheel.size();
+        wheel.cancel(copy);
+
+        //then
+        Assertions.assertThat(sizeAfterReusedId).isEqualTo(1);
+        Assertions.assertThat(wheel.size()).isZero();
+        Assertions.assertThat(wheel.advance(100)).isEmpty();
+    }
+}